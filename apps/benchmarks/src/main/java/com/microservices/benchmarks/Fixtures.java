@@ -0,0 +1,135 @@
+package com.microservices.benchmarks;
+
+import com.microservices.inventory.dto.ProductResponse;
+import com.microservices.inventory.entity.Product;
+import com.microservices.order.dto.BulkStockResponse;
+import com.microservices.order.dto.CartOrderRequest;
+import com.microservices.order.dto.OrderItemRequest;
+import com.microservices.order.dto.OrderItemResponse;
+import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.StockResponse;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Deterministic test data, so that allocation and throughput numbers compare across releases
+public final class Fixtures {
+
+    public static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+    private Fixtures() {
+    }
+
+    public static BigDecimal price(long productId) {
+        return BigDecimal.valueOf(1999 + 37 * productId, 2);
+    }
+
+    public static int quantity(long productId) {
+        return (int) (productId % 5) + 1;
+    }
+
+    public static Product product(long id) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + id)
+                .description("A sturdy everyday product with a description long enough to resemble the catalog")
+                .price(price(id))
+                .stockQuantity(100)
+                .imageUrl("https://images.example.com/products/" + id + ".jpg")
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT)
+                .build();
+    }
+
+    public static ProductResponse productResponse(long id) {
+        Product product = product(id);
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity())
+                .imageUrl(product.getImageUrl())
+                .inStock(true)
+                .build();
+    }
+
+    public static Order order(int itemCount) {
+        Order order = Order.builder()
+                .id(1L)
+                .orderNumber("ORD-1A2B3C4D")
+                .status(Order.OrderStatus.CONFIRMED)
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT)
+                .build();
+
+        for (long productId = 1; productId <= itemCount; productId++) {
+            BigDecimal totalPrice = price(productId).multiply(BigDecimal.valueOf(quantity(productId)));
+            order.addOrderItem(OrderItem.builder()
+                    .id(productId)
+                    .productId(productId)
+                    .productName("Product " + productId)
+                    .quantity(quantity(productId))
+                    .unitPrice(price(productId))
+                    .totalPrice(totalPrice)
+                    .build());
+        }
+        order.updateTotalAmount();
+        return order;
+    }
+
+    public static OrderResponse orderResponse(int itemCount) {
+        Order order = order(itemCount);
+        return OrderResponse.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .items(order.getOrderItems().stream()
+                        .map(item -> OrderItemResponse.builder()
+                                .productId(item.getProductId())
+                                .productName(item.getProductName())
+                                .quantity(item.getQuantity())
+                                .unitPrice(item.getUnitPrice())
+                                .totalPrice(item.getTotalPrice())
+                                .build())
+                        .collect(Collectors.toList()))
+                .totalAmount(order.getTotalAmount())
+                .status(order.getStatus().name())
+                .createdAt(order.getCreatedAt())
+                .message("Order placed successfully!")
+                .build();
+    }
+
+    public static CartOrderRequest cartOrderRequest(int itemCount) {
+        return CartOrderRequest.builder()
+                .items(LongStream.rangeClosed(1, itemCount)
+                        .mapToObj(productId -> OrderItemRequest.builder()
+                                .productId(productId)
+                                .quantity(quantity(productId))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    public static BulkStockResponse reservation(int itemCount) {
+        List<StockResponse> items = LongStream.rangeClosed(1, itemCount)
+                .mapToObj(productId -> StockResponse.builder()
+                        .success(true)
+                        .message("Stock reduced successfully")
+                        .remainingStock(100 - quantity(productId))
+                        .productId(productId)
+                        .productName("Product " + productId)
+                        .price(price(productId))
+                        .build())
+                .collect(Collectors.toList());
+        return BulkStockResponse.builder()
+                .success(true)
+                .message("Stock reduced successfully")
+                .items(items)
+                .build();
+    }
+}
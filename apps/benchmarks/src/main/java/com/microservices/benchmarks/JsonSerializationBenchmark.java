@@ -0,0 +1,75 @@
+package com.microservices.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.inventory.dto.ProductResponse;
+import com.microservices.order.dto.OrderResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Response serialization with an ObjectMapper configured like the one Spring MVC writes responses with
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC"})
+public class JsonSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private ProductResponse productResponse;
+    private List<ProductResponse> productPage;
+
+    @State(Scope.Benchmark)
+    public static class Orders {
+
+        @Param({"1", "10", "50"})
+        int itemCount;
+
+        OrderResponse orderResponse;
+
+        @Setup
+        public void setUp() {
+            orderResponse = Fixtures.orderResponse(itemCount);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        productResponse = Fixtures.productResponse(1L);
+        productPage = LongStream.rangeClosed(1, 100)
+                .mapToObj(Fixtures::productResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] orderResponse(Orders orders) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orders.orderResponse);
+    }
+
+    @Benchmark
+    public byte[] productResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productResponse);
+    }
+
+    @Benchmark
+    public byte[] productPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productPage);
+    }
+}
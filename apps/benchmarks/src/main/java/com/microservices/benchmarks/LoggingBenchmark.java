@@ -0,0 +1,124 @@
+package com.microservices.benchmarks;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.microservices.common.config.RequestIdFilter;
+import com.microservices.common.config.SampledLogFilter;
+import com.microservices.order.service.OrderService;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// The log lines of one cart order as they were (three INFO lines written synchronously with the console
+// pattern) against what the order path logs now (DEBUG steps and one sampled line, queued for a JSON
+// encoder). Events go to a discarding stream, so the cost measured is the encoder's and the caller's.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC"})
+public class LoggingBenchmark {
+
+    private static final Integer ITEMS = 3;
+    private static final String ORDER_NUMBER = "ORD-1A2B3C4D";
+
+    @Param({"sync-pattern", "async-json"})
+    String appender;
+
+    private LoggerContext context;
+    private Logger log;
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+
+        SampledLogFilter sampledLogFilter = new SampledLogFilter();
+        sampledLogFilter.setContext(context);
+        sampledLogFilter.start();
+        context.addTurboFilter(sampledLogFilter);
+
+        OutputStreamAppender<ILoggingEvent> sink = new OutputStreamAppender<>();
+        sink.setContext(context);
+        sink.setEncoder(encoder());
+        sink.setOutputStream(OutputStream.nullOutputStream());
+        sink.start();
+
+        Appender<ILoggingEvent> rootAppender = sink;
+        if (appender.equals("async-json")) {
+            // Blocking and lossless here, so every event counted has been encoded rather than
+            // dropped at a full queue
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(0);
+            async.addAppender(sink);
+            async.start();
+            rootAppender = async;
+        }
+
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(rootAppender);
+        log = context.getLogger(OrderService.class);
+
+        MDC.put(RequestIdFilter.REQUEST_ID, "0f8fad5b-d9cb-469f-a165-70867728950e");
+        MDC.put(RequestIdFilter.ORDER_NUMBER, ORDER_NUMBER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MDC.clear();
+        context.stop();
+    }
+
+    private Encoder<ILoggingEvent> encoder() {
+        if (appender.equals("async-json")) {
+            LogstashEncoder encoder = new LogstashEncoder();
+            encoder.setContext(context);
+            encoder.start();
+            return encoder;
+        }
+        // Spring Boot's console pattern without colours
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        return encoder;
+    }
+
+    @Benchmark
+    public void perOrderLines() {
+        log.info("Creating order with {} items", ITEMS);
+        log.info("Stock reduced successfully for {} products", ITEMS);
+        log.info("Order created successfully with order number: {}", ORDER_NUMBER);
+    }
+
+    @Benchmark
+    public void sampledLines() {
+        log.debug("Creating order with {} items", ITEMS);
+        log.debug("Stock reduced successfully for {} products", ITEMS);
+        log.info(SampledLogFilter.SAMPLED, "Order created successfully with order number: {}", ORDER_NUMBER);
+    }
+}
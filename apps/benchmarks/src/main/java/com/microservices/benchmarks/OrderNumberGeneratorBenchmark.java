@@ -0,0 +1,53 @@
+package com.microservices.benchmarks;
+
+import com.microservices.order.number.OrderNumberGenerator;
+import com.microservices.order.number.RandomOrderNumberGenerator;
+import com.microservices.order.number.TimeOrderedOrderNumberGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The original random scheme against the time-ordered generator, alone and with request threads
+// sharing one generator as they do in the service
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC"})
+public class OrderNumberGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    String generator;
+
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Setup
+    public void setUp() {
+        orderNumberGenerator = generator.equals("random")
+                ? new RandomOrderNumberGenerator()
+                : new TimeOrderedOrderNumberGenerator(0);
+    }
+
+    @Benchmark
+    public String next() {
+        return orderNumberGenerator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextContended() {
+        return orderNumberGenerator.next();
+    }
+}
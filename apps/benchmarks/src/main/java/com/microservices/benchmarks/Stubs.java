@@ -0,0 +1,33 @@
+package com.microservices.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+// Stands in for repositories and clients. Only the given methods answer; anything else would
+// need I/O and fails loudly instead of skewing a benchmark.
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            return switch (method.getName()) {
+                case "toString" -> "Stub of " + type.getSimpleName();
+                case "hashCode" -> System.identityHashCode(self);
+                case "equals" -> self == args[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            };
+        });
+        return type.cast(proxy);
+    }
+
+    public static <T> T stub(Class<T> type) {
+        return stub(type, Map.of());
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservices.inventory.service;
+
+import com.microservices.benchmarks.Fixtures;
+import com.microservices.benchmarks.Stubs;
+import com.microservices.inventory.dto.ProductResponse;
+import com.microservices.inventory.entity.Product;
+import com.microservices.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Product response mapping, alone and behind the single-product and page lookups.
+// Lives in the service package to reach the package-private mapper.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC"})
+public class ProductServiceBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private ProductService productService;
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = Fixtures.product(1L);
+        List<Product> page = LongStream.rangeClosed(1, PAGE_SIZE)
+                .mapToObj(Fixtures::product)
+                .collect(Collectors.toList());
+        ProductRepository productRepository = Stubs.stub(ProductRepository.class, Map.of(
+                "findById", args -> Optional.of(product),
+                "findByIdGreaterThanOrderByIdAsc", args -> page));
+        productService = new ProductService(productRepository, Optional.empty(), Optional.empty(), Optional.empty(),
+                null, Stubs.stub(ApplicationEventPublisher.class), null, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public ProductResponse mapToProductResponse() {
+        return productService.mapToProductResponse(product);
+    }
+
+    @Benchmark
+    public ProductResponse getProductById() {
+        return productService.getProductById(1L);
+    }
+
+    @Benchmark
+    public List<ProductResponse> getProductsAfter() {
+        return productService.getProductsAfter(0L, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,84 @@
+package com.microservices.order.service;
+
+import com.microservices.benchmarks.Fixtures;
+import com.microservices.benchmarks.Stubs;
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.dto.BulkStockResponse;
+import com.microservices.order.dto.CartOrderRequest;
+import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.entity.Order;
+import com.microservices.order.number.TimeOrderedOrderNumberGenerator;
+import com.microservices.order.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Order assembly with its BigDecimal totals, and response mapping.
+// Lives in the service package to reach the package-private methods.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC"})
+public class OrderServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Orders {
+
+        @Param({"1", "10", "50"})
+        int itemCount;
+
+        OrderService orderService;
+        Order order;
+        CartOrderRequest cartOrderRequest;
+        BulkStockResponse reservation;
+
+        @Setup
+        public void setUp() {
+            order = Fixtures.order(itemCount);
+            cartOrderRequest = Fixtures.cartOrderRequest(itemCount);
+            reservation = Fixtures.reservation(itemCount);
+            OrderRepository orderRepository = Stubs.stub(OrderRepository.class,
+                    Map.of("findById", args -> Optional.of(order)));
+            orderService = new OrderService(orderRepository, Stubs.stub(InventoryClient.class), null, null, null,
+                    new TimeOrderedOrderNumberGenerator(0), new SimpleMeterRegistry());
+        }
+    }
+
+    @Benchmark
+    public OrderResponse mapToOrderResponse(Orders orders) {
+        return orders.orderService.mapToOrderResponse(orders.order, "Order placed successfully!");
+    }
+
+    @Benchmark
+    public OrderResponse getOrderById(Orders orders) {
+        return orders.orderService.getOrderById(1L);
+    }
+
+    @Benchmark
+    public Order createOrderEntity(Orders orders) {
+        return orders.orderService.createOrderEntity("ORD-1A2B3C4D", orders.cartOrderRequest, orders.reservation);
+    }
+
+    // The total on its own, summed by the order over its existing lines
+    @Benchmark
+    public BigDecimal totalAmount(Orders orders) {
+        orders.order.updateTotalAmount();
+        return orders.order.getTotalAmount();
+    }
+}
@@ -47,10 +47,13 @@ export const orderService = {
     }
   },
 
-  getAllOrders: async () => {
+  // GET /orders returns one page ordered by id. nextAfterId comes from the Link header and is null
+  // on the last page; pass it back to fetch the next one.
+  getOrders: async (afterId = 0, limit = 100) => {
     try {
-      const response = await apiClient.get('/orders');
-      return response.data;
+      const response = await apiClient.get('/orders', { params: { afterId, limit } });
+      const next = /[?&]afterId=(\d+)[^>]*>;\s*rel="next"/.exec(response.headers.link || '');
+      return { orders: response.data, nextAfterId: next ? Number(next[1]) : null };
     } catch (error) {
       console.error('Error fetching orders:', error);
       throw error;
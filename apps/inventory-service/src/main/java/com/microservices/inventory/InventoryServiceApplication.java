@@ -1,9 +1,13 @@
 package com.microservices.inventory;
 
+import com.microservices.common.config.TracingConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// The configuration shared by the services lives in service-common, outside this package
+@SpringBootApplication(scanBasePackageClasses = {InventoryServiceApplication.class, TracingConfig.class})
+@EnableScheduling
 public class InventoryServiceApplication {
 
     public static void main(String[] args) {
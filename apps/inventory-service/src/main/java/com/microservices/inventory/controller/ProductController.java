@@ -1,16 +1,24 @@
 package com.microservices.inventory.controller;
 
+import com.microservices.inventory.dto.BulkReduceStockRequest;
+import com.microservices.inventory.dto.BulkStockResponse;
 import com.microservices.inventory.dto.ProductResponse;
 import com.microservices.inventory.dto.ReduceStockRequest;
+import com.microservices.inventory.dto.ReleaseStockRequest;
 import com.microservices.inventory.dto.StockResponse;
+import com.microservices.inventory.service.ProductCatalogCache;
 import com.microservices.inventory.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -20,26 +28,89 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class ProductController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_REFERENCE_LENGTH = 64;
+
     private final ProductService productService;
+    private final ProductCatalogCache productCatalogCache;
 
     @GetMapping
-    @Operation(summary = "Get all products", description = "Retrieve a list of all products with their stock information")
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<ProductResponse> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    @Operation(summary = "Get all products", description = "Retrieve products with their stock information. "
+            + "Pass limit (and afterId from the previous page's Link header) to page through the catalog by id. "
+            + "Supports If-None-Match revalidation.")
+    public ResponseEntity<List<ProductResponse>> getAllProducts(@RequestParam(required = false) Long afterId,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                WebRequest webRequest) {
+        ProductCatalogCache.ProductPage page = productCatalogCache.getPage(afterId, limit);
+        if (webRequest.checkNotModified(page.eTag())) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(page.eTag());
+        if (page.nextAfterId() != null) {
+            response.header(HttpHeaders.LINK, "</api/products?afterId=" + page.nextAfterId()
+                    + "&limit=" + page.items().size() + ">; rel=\"next\"");
+        }
+        return response.body(page.items());
     }
 
+    // The ETag covers the catalog fields only, so a reservation does not invalidate it. It is weak
+    // because a 304 may leave the client with an older stock level; the listing's ETag includes stock.
     @GetMapping("/{id}")
-    @Operation(summary = "Get product by ID", description = "Retrieve detailed information about a specific product")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
+    @Operation(summary = "Get product by ID", description = "Retrieve detailed information about a specific product; "
+            + "supports If-None-Match revalidation of its name, description, price and image")
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id, WebRequest webRequest) {
         ProductResponse product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        String eTag = catalogETag(product);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(product);
     }
 
+    // A reservation with a reference is replayed from the journal when it is retried. Without an
+    // explicit reference the Idempotency-Key becomes the reference.
     @PostMapping("/reduce-stock")
-    @Operation(summary = "Reduce product stock", description = "Internal API to reduce stock quantity for a product")
-    public ResponseEntity<StockResponse> reduceStock(@Valid @RequestBody ReduceStockRequest request) {
-        StockResponse response = productService.reduceStock(request);
+    @Operation(summary = "Reduce product stock", description = "Internal API to reserve stock for a product; returns the product name, price and remaining stock. "
+            + "Retries with the same reference, or Idempotency-Key, replay the reservation.")
+    public ResponseEntity<StockResponse> reduceStock(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                     @Valid @RequestBody ReduceStockRequest request) {
+        if (request.getReference() == null && idempotencyKey != null && !idempotencyKey.isBlank()) {
+            request.setReference(reference(idempotencyKey));
+        }
+        return ResponseEntity.ok(productService.reduceStock(request));
+    }
+
+    @PostMapping("/reduce-stock/bulk")
+    @Operation(summary = "Reduce stock for several products", description = "Internal API to reduce stock for all lines of an order atomically. "
+            + "Retries with the same reference, or Idempotency-Key, replay the reservation.")
+    public ResponseEntity<BulkStockResponse> reduceStockBulk(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                             @Valid @RequestBody BulkReduceStockRequest request) {
+        if (request.getReference() == null && idempotencyKey != null && !idempotencyKey.isBlank()) {
+            request.setReference(reference(idempotencyKey));
+        }
+        return ResponseEntity.ok(productService.reduceStockBulk(request));
+    }
+
+    @PostMapping("/release-stock")
+    @Operation(summary = "Release reserved stock", description = "Internal API to compensate a reservation by its reference. "
+            + "Idempotent; releasing an unknown reference blocks any later reservation with it.")
+    public ResponseEntity<BulkStockResponse> releaseStock(@Valid @RequestBody ReleaseStockRequest request) {
+        BulkStockResponse response = productService.releaseStock(request);
         return ResponseEntity.ok(response);
     }
+
+    private static String catalogETag(ProductResponse product) {
+        String catalog = String.join("\u0000", String.valueOf(product.getId()), product.getName(),
+                String.valueOf(product.getDescription()), String.valueOf(product.getPrice()),
+                String.valueOf(product.getImageUrl()));
+        return "W/\"" + DigestUtils.md5DigestAsHex(catalog.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // Keys longer than the reference column are stored by digest
+    private static String reference(String idempotencyKey) {
+        return idempotencyKey.length() <= MAX_REFERENCE_LENGTH
+                ? idempotencyKey
+                : DigestUtils.md5DigestAsHex(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+    }
 }
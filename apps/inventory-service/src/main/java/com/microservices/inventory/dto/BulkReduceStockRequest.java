@@ -0,0 +1,25 @@
+package com.microservices.inventory.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkReduceStockRequest {
+
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<ReduceStockRequest> items;
+
+    @Size(max = 64, message = "Reference must be at most 64 characters")
+    private String reference;
+}
@@ -0,0 +1,18 @@
+package com.microservices.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStockResponse {
+    private boolean success;
+    private String message;
+    private List<StockResponse> items;
+}
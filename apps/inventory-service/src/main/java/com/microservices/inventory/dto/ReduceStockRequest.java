@@ -2,6 +2,7 @@ package com.microservices.inventory.dto;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,4 +20,8 @@ public class ReduceStockRequest {
     @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
+
+    // Caller's identifier for the reservation (the order number); makes retries safe and allows release-stock
+    @Size(max = 64, message = "Reference must be at most 64 characters")
+    private String reference;
 }
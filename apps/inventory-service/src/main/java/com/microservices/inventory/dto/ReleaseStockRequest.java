@@ -0,0 +1,25 @@
+package com.microservices.inventory.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReleaseStockRequest {
+
+    @NotBlank(message = "Reference is required")
+    private String reference;
+
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<ReduceStockRequest> items;
+}
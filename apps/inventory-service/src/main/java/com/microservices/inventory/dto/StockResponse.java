@@ -1,16 +1,23 @@
 package com.microservices.inventory.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class StockResponse {
     private boolean success;
     private String message;
     private Integer remainingStock;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
 }
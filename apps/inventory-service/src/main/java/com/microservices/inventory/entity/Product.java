@@ -41,6 +41,12 @@ public class Product {
     @Column(nullable = false)
     private Integer stockQuantity;
 
+    // Checked only by the optimistic stock concurrency strategy
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long version = 0L;
+
     @Column(name = "image_url")
     private String imageUrl;
 
@@ -71,4 +77,8 @@ public class Product {
         }
         this.stockQuantity -= quantity;
     }
+
+    public void releaseStock(int quantity) {
+        this.stockQuantity += quantity;
+    }
 }
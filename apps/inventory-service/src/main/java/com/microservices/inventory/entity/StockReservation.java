@@ -0,0 +1,73 @@
+package com.microservices.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "stock_reservations_reference_product_id_key",
+                columnNames = {"reference", "product_id"}))
+// Updates write only the changed columns, so a status change never overwrites applied_quantity
+// written by a stock ledger flush in between, or the other way round
+@DynamicUpdate
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // None for a ledger reservation made without a reference, which is deleted once flushed
+    @Column(length = 64)
+    private String reference;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status;
+
+    // How much of this entry products.stock_quantity already reflects. Only the stock ledger leaves
+    // it behind heldQuantity(), until its next flush.
+    @Column(name = "applied_quantity", nullable = false)
+    private Integer appliedQuantity;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public int heldQuantity() {
+        return status == ReservationStatus.RESERVED ? quantity : 0;
+    }
+
+    public enum ReservationStatus {
+        RESERVED,
+        RELEASED
+    }
+}
@@ -0,0 +1,43 @@
+package com.microservices.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One slice of a sharded product's stock. While a product is sharded its stock lives only in
+// these rows and products.stock_quantity stays at zero.
+@Entity
+@Table(name = "stock_shards",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "shard_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -15,9 +15,15 @@ import java.util.Map;
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ErrorResponse {
+    public static final String RESERVATION_RELEASED = "RESERVATION_RELEASED";
+    public static final String CONCURRENT_RESERVATION = "CONCURRENT_RESERVATION";
+
     private LocalDateTime timestamp;
     private int status;
     private String error;
+    // Tells apart failures that share a status, e.g. the 409s, for callers that act on them
+    private String code;
     private String message;
     private Map<String, String> validationErrors;
+    private String traceId;
 }
@@ -1,6 +1,14 @@
 package com.microservices.inventory.exception;
 
+import com.microservices.common.config.SampledLogFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -13,14 +21,23 @@ import java.util.HashMap;
 import java.util.Map;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
+    // The unique key on stock_reservations (reference, product_id)
+    private static final String RESERVATION_REFERENCE_KEY = "stock_reservations_reference_product_id_key";
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+
     @ExceptionHandler(ProductNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleProductNotFoundException(ProductNotFoundException ex) {
-        log.error("Product not found: {}", ex.getMessage());
+        log.warn(SampledLogFilter.SAMPLED, "Product not found: {}", ex.getMessage());
+        meterRegistry.counter("inventory.rejections", "reason", "product_not_found").increment();
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now())
+                .traceId(traceId())
                 .status(HttpStatus.NOT_FOUND.value())
                 .error("Not Found")
                 .message(ex.getMessage())
@@ -30,9 +47,11 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(InsufficientStockException.class)
     public ResponseEntity<ErrorResponse> handleInsufficientStockException(InsufficientStockException ex) {
-        log.error("Insufficient stock: {}", ex.getMessage());
+        log.warn(SampledLogFilter.SAMPLED, "Insufficient stock: {}", ex.getMessage());
+        meterRegistry.counter("inventory.rejections", "reason", "insufficient_stock").increment();
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now())
+                .traceId(traceId())
                 .status(HttpStatus.BAD_REQUEST.value())
                 .error("Bad Request")
                 .message(ex.getMessage())
@@ -40,6 +59,40 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    // A released reference stays released; retrying the reservation cannot succeed
+    @ExceptionHandler(ReservationReleasedException.class)
+    public ResponseEntity<ErrorResponse> handleReservationReleasedException(ReservationReleasedException ex) {
+        log.error("Reservation conflict: {}", ex.getMessage());
+        return conflict(ErrorResponse.RESERVATION_RELEASED, ex.getMessage());
+    }
+
+    // Only a second request recording the same reference concurrently is a conflict; a retry
+    // replays whichever reservation won. Any other broken constraint is a server error.
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        if (isReservationReferenceViolation(ex)) {
+            log.error("Reservation conflict: {}", ex.getMessage());
+            return conflict(ErrorResponse.CONCURRENT_RESERVATION, "Conflicting concurrent reservation");
+        }
+        return handleGlobalException(ex);
+    }
+
+    // The optimistic strategy ran out of retries against concurrent reservations of the same
+    // product. Nothing was reserved, so the caller can retry.
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        log.warn(SampledLogFilter.SAMPLED, "Stock reservation kept losing version checks: {}", ex.getMessage());
+        meterRegistry.counter("inventory.rejections", "reason", "contended").increment();
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .traceId(traceId())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message("Stock is contended, retry the reservation")
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -52,6 +105,7 @@ public class GlobalExceptionHandler {
         log.error("Validation errors: {}", errors);
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now())
+                .traceId(traceId())
                 .status(HttpStatus.BAD_REQUEST.value())
                 .error("Validation Failed")
                 .message("Invalid request parameters")
@@ -65,10 +119,38 @@ public class GlobalExceptionHandler {
         log.error("Unexpected error occurred: ", ex);
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(LocalDateTime.now())
+                .traceId(traceId())
                 .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
                 .error("Internal Server Error")
                 .message("An unexpected error occurred")
                 .build();
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    private ResponseEntity<ErrorResponse> conflict(String code, String message) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .traceId(traceId())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Conflict")
+                .code(code)
+                .message(message)
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    private static boolean isReservationReferenceViolation(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return RESERVATION_REFERENCE_KEY.equals(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    // Lets a client quote the failing request's trace
+    private String traceId() {
+        Span span = tracer.currentSpan();
+        return span != null ? span.context().traceId() : null;
+    }
 }
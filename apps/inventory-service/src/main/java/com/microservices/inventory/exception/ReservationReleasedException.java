@@ -0,0 +1,7 @@
+package com.microservices.inventory.exception;
+
+public class ReservationReleasedException extends RuntimeException {
+    public ReservationReleasedException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,18 @@
 package com.microservices.inventory.repository;
 
 import com.microservices.inventory.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +21,41 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT p FROM Product p WHERE p.id = :id")
     Optional<Product> findByIdWithLock(@Param("id") Long id);
+
+    // Rows are locked in id order so that concurrent multi-product reservations cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdWithLock(@Param("ids") Collection<Long> ids);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("SELECT p.id AS id, p.stockQuantity AS stockQuantity FROM Product p WHERE p.id = :id")
+    Optional<StockLevel> findStockLevelById(@Param("id") Long id);
+
+    // Stock as the stock ledger counts it: the stored stock less what journal entries not yet
+    // flushed still hold, plus what they have released since their last flush
+    @Query(value = "SELECT p.id AS id, p.stock_quantity - coalesce(sum(" + LEDGER_HELD + " - r.applied_quantity), 0) " +
+            "AS \"stockQuantity\" FROM products p LEFT JOIN stock_reservations r " +
+            "ON r.product_id = p.id AND r.applied_quantity <> " + LEDGER_HELD + " GROUP BY p.id", nativeQuery = true)
+    List<StockLevel> findLedgerStockLevels();
+
+    @Query(value = "SELECT p.id AS id, p.stock_quantity - coalesce(sum(" + LEDGER_HELD + " - r.applied_quantity), 0) " +
+            "AS \"stockQuantity\" FROM products p LEFT JOIN stock_reservations r " +
+            "ON r.product_id = p.id AND r.applied_quantity <> " + LEDGER_HELD + " WHERE p.id = :id GROUP BY p.id",
+            nativeQuery = true)
+    Optional<StockLevel> findLedgerStockLevelById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = :updatedAt, " +
+            "p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("updatedAt") LocalDateTime updatedAt);
+
+    String LEDGER_HELD = "CASE WHEN r.status = 'RESERVED' THEN r.quantity ELSE 0 END";
+
+    interface StockLevel {
+        Long getId();
+
+        Integer getStockQuantity();
+    }
 }
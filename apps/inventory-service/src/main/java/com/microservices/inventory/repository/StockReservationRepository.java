@@ -0,0 +1,34 @@
+package com.microservices.inventory.repository;
+
+import com.microservices.inventory.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    List<StockReservation> findByReference(String reference);
+
+    // Entries the stock ledger has not written to products yet, locked until the flush commits
+    @Query(value = "SELECT * FROM stock_reservations " +
+            "WHERE applied_quantity <> CASE WHEN status = 'RESERVED' THEN quantity ELSE 0 END " +
+            "ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<StockReservation> findUnappliedForUpdate(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE stock_reservations SET applied_quantity = :appliedQuantity WHERE id = :id", nativeQuery = true)
+    int markApplied(@Param("id") Long id, @Param("appliedQuantity") int appliedQuantity);
+
+    // Entries created before the given time whose stock change the products table already reflects
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM stock_reservations WHERE created_at < :createdBefore " +
+            "AND applied_quantity = CASE WHEN status = 'RESERVED' THEN quantity ELSE 0 END", nativeQuery = true)
+    int deleteAppliedBefore(@Param("createdBefore") LocalDateTime createdBefore);
+}
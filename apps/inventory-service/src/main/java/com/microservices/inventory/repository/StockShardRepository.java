@@ -0,0 +1,45 @@
+package com.microservices.inventory.repository;
+
+import com.microservices.inventory.entity.StockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockShardRepository extends JpaRepository<StockShard, Long> {
+
+    // Locks only the one shard row, and only if it can cover the quantity
+    @Modifying
+    @Query("UPDATE StockShard s SET s.quantity = s.quantity - :quantity, s.updatedAt = :updatedAt " +
+            "WHERE s.productId = :productId AND s.shardIndex = :shardIndex AND s.quantity >= :quantity")
+    int take(@Param("productId") Long productId, @Param("shardIndex") int shardIndex,
+             @Param("quantity") int quantity, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("UPDATE StockShard s SET s.quantity = s.quantity + :quantity, s.updatedAt = :updatedAt " +
+            "WHERE s.productId = :productId AND s.shardIndex = :shardIndex")
+    int give(@Param("productId") Long productId, @Param("shardIndex") int shardIndex,
+             @Param("quantity") int quantity, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Locks every shard of the product in index order, so fallbacks and rebalancing cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StockShard s WHERE s.productId = :productId ORDER BY s.shardIndex")
+    List<StockShard> findAllByProductIdWithLock(@Param("productId") Long productId);
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM StockShard s WHERE s.productId = :productId")
+    int sumQuantity(@Param("productId") Long productId);
+
+    @Query("SELECT DISTINCT s.productId FROM StockShard s")
+    List<Long> findShardedProductIds();
+
+    @Modifying
+    @Query("DELETE FROM StockShard s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
@@ -0,0 +1,78 @@
+package com.microservices.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microservices.inventory.dto.ProductResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+// Caches product listing pages together with their ETag so that unchanged pages can be answered
+// without a database read. Pages are evicted after a stock write commits on this instance; the
+// TTL bounds staleness for writes that went through other replicas. Pages are loaded in a
+// read-write transaction so that, with a read replica on, they come from the primary: a lagging
+// replica would put the evicted page back for the whole TTL.
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<PageKey, ProductPage> pages;
+
+    public ProductCatalogCache(ProductService productService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${inventory.product-cache.ttl:5s}") Duration ttl,
+                               @Value("${inventory.product-cache.maximum-size:1000}") long maximumSize) {
+        this.productService = productService;
+        this.transactionTemplate = transactionTemplate;
+        this.pages = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public ProductPage getPage(Long afterId, Integer limit) {
+        // Without a limit the whole catalog is returned, so afterId does not apply and must not split the key
+        Integer pageSize = limit == null ? null : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageKey key = new PageKey(afterId == null || pageSize == null ? 0L : afterId, pageSize);
+        return pages.get(key, this::loadPage);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        pages.asMap().entrySet().removeIf(page ->
+                event.productIds().stream().anyMatch(id -> page.getValue().covers(page.getKey(), id)));
+    }
+
+    private ProductPage loadPage(PageKey key) {
+        List<ProductResponse> items = transactionTemplate.execute(status -> key.limit() == null
+                ? productService.getAllProducts()
+                : productService.getProductsAfter(key.afterId(), key.limit()));
+
+        Long lastId = items.isEmpty() ? null : items.get(items.size() - 1).getId();
+        boolean full = key.limit() != null && items.size() == key.limit();
+        String eTag = "\"" + DigestUtils.md5DigestAsHex(items.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        return new ProductPage(items, eTag, full ? lastId : null);
+    }
+
+    private record PageKey(long afterId, Integer limit) {
+    }
+
+    public record ProductPage(List<ProductResponse> items, String eTag, Long nextAfterId) {
+
+        // A full page covers ids up to its last item; the last page also covers ids added after it
+        private boolean covers(PageKey key, Long productId) {
+            return productId > key.afterId() && (nextAfterId == null || productId <= nextAfterId);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.microservices.inventory.service;
+
+import java.util.List;
+
+public record ProductChangedEvent(List<Long> productIds) {
+}
@@ -1,18 +1,45 @@
 package com.microservices.inventory.service;
 
+import com.microservices.common.config.RequestIdFilter;
+import com.microservices.common.config.SampledLogFilter;
+import com.microservices.inventory.dto.BulkReduceStockRequest;
+import com.microservices.inventory.dto.BulkStockResponse;
 import com.microservices.inventory.dto.ProductResponse;
 import com.microservices.inventory.dto.ReduceStockRequest;
+import com.microservices.inventory.dto.ReleaseStockRequest;
 import com.microservices.inventory.dto.StockResponse;
 import com.microservices.inventory.entity.Product;
 import com.microservices.inventory.exception.InsufficientStockException;
 import com.microservices.inventory.exception.ProductNotFoundException;
 import com.microservices.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,60 +48,345 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final Optional<StockLedger> stockLedger;
+    private final Optional<StockCombiner> stockCombiner;
+    private final Optional<ShardedStock> shardedStock;
+    private final StockReservationJournal stockReservationJournal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${inventory.stock.concurrency:pessimistic}")
+    private StockConcurrency concurrency;
+
+    @Value("${inventory.stock.optimistic.max-attempts:5}")
+    private int optimisticMaxAttempts;
+
+    @Value("${inventory.stock.optimistic.backoff:5ms}")
+    private Duration optimisticBackoff;
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
-        log.info("Fetching all products");
-        return productRepository.findAll().stream()
+        log.debug("Fetching all products");
+        return productRepository.findAll(Sort.by("id")).stream()
+                .map(this::mapToProductResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getProductsAfter(Long afterId, int limit) {
+        log.debug("Fetching {} products after id: {}", limit, afterId);
+        return productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit)).stream()
                 .map(this::mapToProductResponse)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public ProductResponse getProductById(Long id) {
-        log.info("Fetching product with id: {}", id);
+        log.debug("Fetching product with id: {}", id);
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + id));
         return mapToProductResponse(product);
     }
 
-    @Transactional
+    // Not @Transactional: the combiner opens one transaction per batch, so waiting callers hold no connection
     public StockResponse reduceStock(ReduceStockRequest request) {
-        log.info("Reducing stock for product id: {} by quantity: {}", request.getProductId(), request.getQuantity());
+        MDC.put(RequestIdFilter.ORDER_NUMBER, request.getReference());
+        log.debug("Reducing stock for product id: {} by quantity: {}", request.getProductId(), request.getQuantity());
+
+        StockResponse response;
+        if (stockCombiner.isPresent() && stockLedger.isEmpty() && !isSharded(request.getProductId())) {
+            response = stockCombiner.get().reduce(request);
+        } else {
+            SortedMap<Long, Integer> quantities = new TreeMap<>(Map.of(request.getProductId(), request.getQuantity()));
+            response = inTransaction(status -> reserve(request.getReference(), quantities).get(0));
+        }
+
+        log.info(SampledLogFilter.SAMPLED, "Stock reduced successfully for product id: {}. Remaining stock: {}",
+                response.getProductId(), response.getRemainingStock());
+        return response;
+    }
+
+    public BulkStockResponse reduceStockBulk(BulkReduceStockRequest request) {
+        SortedMap<Long, Integer> quantities = mergeLines(request.getItems());
+        MDC.put(RequestIdFilter.ORDER_NUMBER, request.getReference());
+        log.debug("Reducing stock in bulk for {} products", quantities.size());
+
+        List<StockResponse> items = inTransaction(status -> reserve(request.getReference(), quantities));
+
+        log.info(SampledLogFilter.SAMPLED, "Bulk stock reduction succeeded for {} products", items.size());
+        return BulkStockResponse.builder()
+                .success(true)
+                .message("Stock reduced successfully")
+                .items(items)
+                .build();
+    }
+
+    @Transactional
+    public BulkStockResponse releaseStock(ReleaseStockRequest request) {
+        SortedMap<Long, Integer> quantities = mergeLines(request.getItems());
+        log.info("Releasing stock for reference: {} on {} products", request.getReference(), quantities.size());
+
+        List<StockResponse> items;
+        if (stockLedger.isPresent()) {
+            Map<Long, Integer> released = stockReservationJournal.release(request.getReference(), quantities.keySet(), false);
+            released.forEach(stockLedger.get()::release);
+            items = productRepository.findAllById(released.keySet()).stream()
+                    .map(product -> mapToStockResponse(product,
+                            stockLedger.get().available(product.getId()).orElse(0) + released.get(product.getId()),
+                            "Stock released successfully"))
+                    .collect(Collectors.toList());
+        } else {
+            // Take the product locks before touching the journal, in the same order as reservations do
+            List<Product> products = productRepository.findAllByIdWithLock(quantities.keySet());
+            Map<Long, Integer> released = stockReservationJournal.release(request.getReference(), quantities.keySet(), true);
+            items = new ArrayList<>(released.size());
+            for (Product product : products) {
+                if (!released.containsKey(product.getId())) {
+                    continue;
+                }
+                if (isSharded(product.getId())) {
+                    int remainingStock = shardedStock.get().release(product.getId(), released.get(product.getId()));
+                    items.add(mapToStockResponse(product, remainingStock, "Stock released successfully"));
+                } else {
+                    product.releaseStock(released.get(product.getId()));
+                    items.add(mapToStockResponse(product, product.getStockQuantity(), "Stock released successfully"));
+                }
+            }
+        }
+
+        log.info("Released stock for reference: {} on {} products", request.getReference(), items.size());
+        eventPublisher.publishEvent(new ProductChangedEvent(List.copyOf(quantities.keySet())));
+        return BulkStockResponse.builder()
+                .success(true)
+                .message(items.isEmpty() ? "Nothing to release" : "Stock released successfully")
+                .items(items)
+                .build();
+    }
+
+    private List<StockResponse> reserve(String reference, SortedMap<Long, Integer> quantities) {
+        if (reference != null) {
+            Optional<Map<Long, Integer>> reserved = stockReservationJournal.findReserved(reference);
+            if (reserved.isPresent()) {
+                log.info("Stock for reference: {} is already reserved. Replaying reservation.", reference);
+                return productRepository.findAllById(reserved.get().keySet()).stream()
+                        .map(product -> mapToStockResponse(product, currentStock(product), "Stock already reserved"))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        List<StockResponse> items;
+        if (stockLedger.isPresent()) {
+            items = reserveInLedger(stockLedger.get(), quantities);
+        } else if (concurrency == StockConcurrency.CONDITIONAL) {
+            items = reduceConditionally(quantities);
+        } else {
+            items = reduceInDatabase(quantities);
+        }
+
+        if (stockLedger.isPresent()) {
+            // The journal is what the ledger flushes from, so every reservation needs an entry
+            stockReservationJournal.record(reference, quantities, false);
+        } else if (reference != null) {
+            stockReservationJournal.record(reference, quantities, true);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(List.copyOf(quantities.keySet())));
+        return items;
+    }
 
-        // Use pessimistic locking to prevent race conditions
-        Product product = productRepository.findByIdWithLock(request.getProductId())
-                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + request.getProductId()));
+    // Merge duplicate lines and keep them sorted by product id, which is also the lock order
+    private SortedMap<Long, Integer> mergeLines(List<ReduceStockRequest> lines) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        lines.forEach(line -> quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum));
+        return quantities;
+    }
+
+    // Runs a reservation in its own transaction. Under the optimistic strategy a reservation that
+    // lost the version check is retried from scratch after a jittered exponential backoff.
+    private <T> T inTransaction(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (OptimisticLockingFailureException e) {
+                if (concurrency != StockConcurrency.OPTIMISTIC || attempt >= optimisticMaxAttempts) {
+                    throw e;
+                }
+                long bound = optimisticBackoff.toMillis() << Math.min(attempt - 1, 6);
+                log.debug("Stock reservation lost a version check, retrying (attempt {}): {}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private List<StockResponse> reduceInDatabase(SortedMap<Long, Integer> quantities) {
+        // Pessimistic mode locks product rows, optimistic mode relies on the version check at commit;
+        // sharded products lock shard rows instead
+        Map<Boolean, List<Long>> idsBySharding = quantities.keySet().stream()
+                .collect(Collectors.partitioningBy(this::isSharded));
+        List<Product> products = new ArrayList<>();
+        if (!idsBySharding.get(false).isEmpty() && concurrency == StockConcurrency.OPTIMISTIC) {
+            products.addAll(productRepository.findAllById(idsBySharding.get(false)));
+        } else if (!idsBySharding.get(false).isEmpty()) {
+            long lockRequested = System.nanoTime();
+            products.addAll(productRepository.findAllByIdWithLock(idsBySharding.get(false)));
+            recordLockTimes(lockRequested);
+        }
+        if (!idsBySharding.get(true).isEmpty()) {
+            products.addAll(productRepository.findAllById(idsBySharding.get(true)));
+        }
+        Map<Long, Product> productsById = products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
 
-        if (!product.hasStock(request.getQuantity())) {
-            log.warn("Insufficient stock for product id: {}. Available: {}, Requested: {}",
-                    request.getProductId(), product.getStockQuantity(), request.getQuantity());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = productsById.get(line.getKey());
+            if (product == null) {
+                throw new ProductNotFoundException("Product not found with id: " + line.getKey());
+            }
+            if (!isSharded(product.getId()) && !product.hasStock(line.getValue())) {
+                log.warn(SampledLogFilter.SAMPLED,
+                        "Insufficient stock for product id: {}. Available: {}, Requested: {}",
+                        product.getId(), product.getStockQuantity(), line.getValue());
+                throw new InsufficientStockException(
+                        "Insufficient stock for product " + product.getId() + ". Available: "
+                                + product.getStockQuantity() + ", Requested: " + line.getValue());
+            }
+        }
+
+        List<StockResponse> items = new ArrayList<>(quantities.size());
+        List<Product> updated = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = productsById.get(line.getKey());
+            if (isSharded(product.getId())) {
+                int remainingStock = shardedStock.get().reserve(product.getId(), line.getValue());
+                items.add(mapToStockResponse(product, remainingStock, "Stock reduced successfully"));
+            } else {
+                product.reduceStock(line.getValue());
+                updated.add(product);
+                items.add(mapToStockResponse(product, product.getStockQuantity(), "Stock reduced successfully"));
+            }
+        }
+        productRepository.saveAll(updated);
+        return items;
+    }
+
+    // One guarded UPDATE per product and no read beforehand; the row lock is only held from the
+    // update to commit. Products are read afterwards, so the responses carry the decremented stock.
+    private List<StockResponse> reduceConditionally(SortedMap<Long, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        long lockRequested = System.nanoTime();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (isSharded(line.getKey()) || productRepository.decrementStock(line.getKey(), line.getValue(), now) > 0) {
+                continue;
+            }
+            int available = productRepository.findStockLevelById(line.getKey())
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + line.getKey()))
+                    .getStockQuantity();
+            log.warn(SampledLogFilter.SAMPLED,
+                    "Insufficient stock for product id: {}. Available: {}, Requested: {}",
+                    line.getKey(), available, line.getValue());
             throw new InsufficientStockException(
-                    "Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + request.getQuantity());
+                    "Insufficient stock for product " + line.getKey() + ". Available: "
+                            + available + ", Requested: " + line.getValue());
         }
+        recordLockTimes(lockRequested);
 
-        product.reduceStock(request.getQuantity());
-        Product savedProduct = productRepository.save(product);
+        Map<Long, Product> productsById = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<StockResponse> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = productsById.get(line.getKey());
+            if (product == null) {
+                throw new ProductNotFoundException("Product not found with id: " + line.getKey());
+            }
+            int remainingStock = isSharded(product.getId())
+                    ? shardedStock.get().reserve(product.getId(), line.getValue())
+                    : product.getStockQuantity();
+            items.add(mapToStockResponse(product, remainingStock, "Stock reduced successfully"));
+        }
+        return items;
+    }
 
-        log.info("Stock reduced successfully for product id: {}. Remaining stock: {}",
-                savedProduct.getId(), savedProduct.getStockQuantity());
+    // Splits time spent on product row locks into waiting for them and holding them until the
+    // transaction ends. In conditional mode the wait includes running the updates.
+    private void recordLockTimes(long lockRequested) {
+        long lockAcquired = System.nanoTime();
+        lockTimer("inventory.stock.lock.acquire").record(lockAcquired - lockRequested, TimeUnit.NANOSECONDS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lockTimer("inventory.stock.lock.hold").record(System.nanoTime() - lockAcquired, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
 
+    private Timer lockTimer(String name) {
+        return Timer.builder(name)
+                .tag("strategy", concurrency.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private List<StockResponse> reserveInLedger(StockLedger ledger, SortedMap<Long, Integer> quantities) {
+        Map<Long, Product> productsById = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // All-or-nothing: if anything fails, including the journal write, the ledger hands back what was reserved
+        List<StockResponse> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = productsById.get(line.getKey());
+            if (product == null) {
+                throw new ProductNotFoundException("Product not found with id: " + line.getKey());
+            }
+            int remainingStock = ledger.reserve(line.getKey(), line.getValue());
+            items.add(mapToStockResponse(product, remainingStock, "Stock reduced successfully"));
+        }
+        return items;
+    }
+
+    private int currentStock(Product product) {
+        if (isSharded(product.getId())) {
+            return shardedStock.get().total(product.getId());
+        }
+        return stockLedger
+                .flatMap(ledger -> ledger.available(product.getId()))
+                .orElse(product.getStockQuantity());
+    }
+
+    private boolean isSharded(Long productId) {
+        return shardedStock.map(shards -> shards.isSharded(productId)).orElse(false);
+    }
+
+    private StockResponse mapToStockResponse(Product product, int remainingStock, String message) {
         return StockResponse.builder()
                 .success(true)
-                .message("Stock reduced successfully")
-                .remainingStock(savedProduct.getStockQuantity())
+                .message(message)
+                .remainingStock(remainingStock)
+                .productId(product.getId())
+                .productName(product.getName())
+                .price(product.getPrice())
                 .build();
     }
 
-    private ProductResponse mapToProductResponse(Product product) {
+    // Package-private for the JMH suites in the benchmarks module
+    ProductResponse mapToProductResponse(Product product) {
+        int stockQuantity = currentStock(product);
+
         return ProductResponse.builder()
                 .id(product.getId())
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
-                .stockQuantity(product.getStockQuantity())
+                .stockQuantity(stockQuantity)
                 .imageUrl(product.getImageUrl())
-                .inStock(product.getStockQuantity() > 0)
+                .inStock(stockQuantity > 0)
                 .build();
     }
+
+    public enum StockConcurrency {
+        PESSIMISTIC, OPTIMISTIC, CONDITIONAL
+    }
 }
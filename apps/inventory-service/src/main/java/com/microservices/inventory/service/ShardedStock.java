@@ -0,0 +1,159 @@
+package com.microservices.inventory.service;
+
+import com.microservices.inventory.entity.Product;
+import com.microservices.inventory.entity.StockShard;
+import com.microservices.inventory.exception.InsufficientStockException;
+import com.microservices.inventory.repository.ProductRepository;
+import com.microservices.inventory.repository.StockShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Splits the stock of configured hot products across shard rows so that concurrent reservations
+// lock different rows. A reservation starts at a random shard and moves on when a shard cannot
+// cover it; only when no single shard can, it locks all shards and drains them in order. The
+// rebalancer evens shards out so that this slow path stays rare. Not used with the stock ledger,
+// which already takes reservations off the database.
+@Component
+@ConditionalOnExpression("${inventory.stock.shards.enabled:false} and !${inventory.stock.ledger.enabled:false}")
+@Slf4j
+public class ShardedStock {
+
+    private final StockShardRepository stockShardRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> productIds;
+    private final int shardCount;
+
+    public ShardedStock(StockShardRepository stockShardRepository,
+                        ProductRepository productRepository,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${inventory.stock.shards.product-ids:}") Set<Long> productIds,
+                        @Value("${inventory.stock.shards.count:8}") int shardCount) {
+        this.stockShardRepository = stockShardRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.productIds = Set.copyOf(productIds);
+        this.shardCount = shardCount;
+    }
+
+    // Moves configured products into shards and folds products that are no longer configured back
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        for (Long productId : productIds) {
+            transactionTemplate.executeWithoutResult(status -> productRepository.findByIdWithLock(productId)
+                    .ifPresent(this::split));
+        }
+        for (Long productId : stockShardRepository.findShardedProductIds()) {
+            if (!productIds.contains(productId)) {
+                transactionTemplate.executeWithoutResult(status -> productRepository.findByIdWithLock(productId)
+                        .ifPresent(this::fold));
+            }
+        }
+        log.info("Sharded stock enabled for products {} with {} shards each", productIds, shardCount);
+    }
+
+    public boolean isSharded(Long productId) {
+        return productIds.contains(productId);
+    }
+
+    // Must run inside the caller's transaction; returns the stock left across all shards
+    public int reserve(Long productId, int quantity) {
+        LocalDateTime now = LocalDateTime.now();
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            if (stockShardRepository.take(productId, (start + i) % shardCount, quantity, now) == 1) {
+                return stockShardRepository.sumQuantity(productId);
+            }
+        }
+
+        List<StockShard> shards = stockShardRepository.findAllByProductIdWithLock(productId);
+        int available = shards.stream().mapToInt(StockShard::getQuantity).sum();
+        if (available < quantity) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for product " + productId + ". Available: " + available + ", Requested: " + quantity);
+        }
+        int remaining = quantity;
+        for (StockShard shard : shards) {
+            int taken = Math.min(shard.getQuantity(), remaining);
+            shard.setQuantity(shard.getQuantity() - taken);
+            remaining -= taken;
+        }
+        stockShardRepository.saveAll(shards);
+        return available - quantity;
+    }
+
+    // Must run inside the caller's transaction
+    public int release(Long productId, int quantity) {
+        stockShardRepository.give(productId, ThreadLocalRandom.current().nextInt(shardCount), quantity, LocalDateTime.now());
+        return stockShardRepository.sumQuantity(productId);
+    }
+
+    public int total(Long productId) {
+        return stockShardRepository.sumQuantity(productId);
+    }
+
+    // Evens out shards once the emptiest one has dropped below half of its fair share
+    @Scheduled(fixedDelayString = "${inventory.stock.shards.rebalance-interval-ms:5000}")
+    public void rebalance() {
+        for (Long productId : productIds) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<StockShard> shards = stockShardRepository.findAllByProductIdWithLock(productId);
+                int total = shards.stream().mapToInt(StockShard::getQuantity).sum();
+                int fairShare = total / Math.max(shards.size(), 1);
+                if (shards.isEmpty() || shards.stream().allMatch(shard -> shard.getQuantity() * 2 >= fairShare)) {
+                    return;
+                }
+                distribute(shards, total);
+                stockShardRepository.saveAll(shards);
+                log.info("Rebalanced {} units of product id: {} across {} shards", total, productId, shards.size());
+            });
+        }
+    }
+
+    private void split(Product product) {
+        List<StockShard> shards = stockShardRepository.findAllByProductIdWithLock(product.getId());
+        int total = product.getStockQuantity() + shards.stream().mapToInt(StockShard::getQuantity).sum();
+        if (shards.size() == shardCount && product.getStockQuantity() == 0) {
+            return;
+        }
+
+        // Shard count changed or stock was added to the product row: rebuild the shards from the total
+        stockShardRepository.deleteByProductId(product.getId());
+        List<StockShard> rebuilt = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            rebuilt.add(StockShard.builder().productId(product.getId()).shardIndex(i).quantity(0).build());
+        }
+        distribute(rebuilt, total);
+        stockShardRepository.saveAll(rebuilt);
+        product.setStockQuantity(0);
+        productRepository.save(product);
+        log.info("Split {} units of product id: {} across {} shards", total, product.getId(), shardCount);
+    }
+
+    private void fold(Product product) {
+        int total = stockShardRepository.findAllByProductIdWithLock(product.getId()).stream()
+                .mapToInt(StockShard::getQuantity).sum();
+        stockShardRepository.deleteByProductId(product.getId());
+        product.setStockQuantity(product.getStockQuantity() + total);
+        productRepository.save(product);
+        log.info("Folded {} units of product id: {} back from shards", total, product.getId());
+    }
+
+    private void distribute(List<StockShard> shards, int total) {
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).setQuantity(total / shards.size() + (i < total % shards.size() ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.microservices.inventory.service;
+
+import com.microservices.inventory.dto.ReduceStockRequest;
+import com.microservices.inventory.dto.StockResponse;
+import com.microservices.inventory.entity.Product;
+import com.microservices.inventory.exception.InsufficientStockException;
+import com.microservices.inventory.exception.ProductNotFoundException;
+import com.microservices.inventory.exception.ReservationReleasedException;
+import com.microservices.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces concurrent single-product reductions. The first request for a product opens a batch
+// and waits up to the window (or until max-batch-size requests joined), then applies the whole
+// batch under one row lock. Requests are admitted in arrival order, so a request that no longer
+// fits fails with InsufficientStockException without affecting the ones around it. Batches always
+// lock the product row, whatever inventory.stock.concurrency says; the lock timers are tagged
+// strategy=combiner.
+@Component
+@ConditionalOnProperty(name = "inventory.stock.combiner.enabled", havingValue = "true")
+@Slf4j
+public class StockCombiner {
+
+    private final ProductRepository productRepository;
+    private final StockReservationJournal stockReservationJournal;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private final Timer latency;
+    private final Timer lockAcquire;
+    private final Timer lockHold;
+    private final Map<Long, Batch> openBatches = new ConcurrentHashMap<>();
+
+    public StockCombiner(ProductRepository productRepository,
+                         StockReservationJournal stockReservationJournal,
+                         TransactionTemplate transactionTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         @Value("${inventory.stock.combiner.window:5ms}") Duration window,
+                         @Value("${inventory.stock.combiner.max-batch-size:64}") int maxBatchSize,
+                         @Value("${inventory.stock.concurrency:pessimistic}") ProductService.StockConcurrency concurrency) {
+        this.productRepository = productRepository;
+        this.stockReservationJournal = stockReservationJournal;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("inventory.stock.combiner.batch.size")
+                .description("Reductions applied per locked update")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.latency = Timer.builder("inventory.stock.combiner.latency")
+                .description("Time from joining a batch to receiving the result")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lockAcquire = Timer.builder("inventory.stock.lock.acquire")
+                .tag("strategy", "combiner")
+                .register(meterRegistry);
+        this.lockHold = Timer.builder("inventory.stock.lock.hold")
+                .tag("strategy", "combiner")
+                .register(meterRegistry);
+        if (concurrency != ProductService.StockConcurrency.PESSIMISTIC) {
+            log.warn("inventory.stock.concurrency={} is ignored for single-product reductions: the combiner locks the "
+                    + "product row for each batch", concurrency.name().toLowerCase());
+        }
+    }
+
+    public StockResponse reduce(ReduceStockRequest request) {
+        // Replays and released references are answered before joining a batch, so they never wait for the row lock
+        if (request.getReference() != null) {
+            Optional<StockResponse> replay = transactionTemplate.execute(status -> findReplay(request.getReference()));
+            if (replay.isPresent()) {
+                return replay.get();
+            }
+        }
+
+        Timer.Sample sample = Timer.start();
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        Batch batch = openBatches.compute(request.getProductId(),
+                (productId, open) -> open != null && open.add(pending) ? open : new Batch(pending, maxBatchSize));
+
+        if (batch.leader == pending) {
+            batch.awaitFull(window);
+            openBatches.remove(request.getProductId(), batch);
+            apply(request.getProductId(), batch.pendings);
+        }
+
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            sample.stop(latency);
+        }
+    }
+
+    private void apply(Long productId, List<Pending> pendings) {
+        batchSizes.record(pendings.size());
+        Map<Pending, Outcome> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> reduceWithLock(productId, pendings));
+        } catch (ProductNotFoundException e) {
+            pendings.forEach(pending -> pending.result.completeExceptionally(e));
+            return;
+        } catch (RuntimeException e) {
+            if (pendings.size() == 1) {
+                pendings.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // A database error rolls back the whole batch, whichever request caused it, and the rejections were
+            // decided against stock the rolled-back requests had taken. Every request is re-run on its own, so
+            // the error only reaches the one it belongs to.
+            log.warn("Batch of {} reductions for product id: {} failed, applying them one by one: {}",
+                    pendings.size(), productId, e.getMessage());
+            pendings.forEach(pending -> apply(productId, List.of(pending)));
+            return;
+        }
+        outcomes.forEach((pending, outcome) -> outcome.complete(pending.result));
+    }
+
+    // Only replays and refusals are decided per request. Database errors propagate and fail the batch,
+    // so nothing is completed before the batch has committed.
+    private Map<Pending, Outcome> reduceWithLock(Long productId, List<Pending> pendings) {
+        long lockRequested = System.nanoTime();
+        Product product = productRepository.findByIdWithLock(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
+        recordLockTimes(lockRequested);
+
+        int stock = product.getStockQuantity();
+        Map<Pending, Outcome> outcomes = new HashMap<>();
+        Map<String, StockResponse> reservedInBatch = new HashMap<>();
+        for (Pending pending : pendings) {
+            String reference = pending.request.getReference();
+            int quantity = pending.request.getQuantity();
+            if (reference != null) {
+                StockResponse replay = reservedInBatch.get(reference);
+                try {
+                    // Catches a first request that committed after this one was checked in reduce
+                    if (replay == null && stockReservationJournal.findReserved(reference).isPresent()) {
+                        replay = toResponse(product, stock, "Stock already reserved");
+                    }
+                } catch (ReservationReleasedException e) {
+                    outcomes.put(pending, Outcome.refused(e));
+                    continue;
+                }
+                if (replay != null) {
+                    outcomes.put(pending, Outcome.reduced(replay));
+                    continue;
+                }
+            }
+            if (quantity > stock) {
+                outcomes.put(pending, Outcome.refused(new InsufficientStockException(
+                        "Insufficient stock for product " + productId + ". Available: "
+                                + stock + ", Requested: " + quantity)));
+                continue;
+            }
+            // The journal entry goes first; the product is only written once, after the whole batch
+            if (reference != null) {
+                stockReservationJournal.record(reference, new TreeMap<>(Map.of(productId, quantity)), true);
+            }
+            stock -= quantity;
+            StockResponse response = toResponse(product, stock, "Stock reduced successfully");
+            if (reference != null) {
+                reservedInBatch.put(reference, response);
+            }
+            outcomes.put(pending, Outcome.reduced(response));
+        }
+
+        if (stock != product.getStockQuantity()) {
+            product.reduceStock(product.getStockQuantity() - stock);
+            productRepository.save(product);
+            eventPublisher.publishEvent(new ProductChangedEvent(List.of(productId)));
+        }
+        log.debug("Applied {} reductions for product id: {} under one lock", pendings.size(), productId);
+        return outcomes;
+    }
+
+    // Same split as ProductService: waiting for the row lock, then holding it until the batch commits
+    private void recordLockTimes(long lockRequested) {
+        long lockAcquired = System.nanoTime();
+        lockAcquire.record(lockAcquired - lockRequested, TimeUnit.NANOSECONDS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lockHold.record(System.nanoTime() - lockAcquired, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    // Not read-only: the reservation being replayed may have committed on the primary a moment ago
+    private Optional<StockResponse> findReplay(String reference) {
+        Optional<Map<Long, Integer>> reserved = stockReservationJournal.findReserved(reference);
+        if (reserved.isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("Stock for reference: {} is already reserved. Replaying reservation.", reference);
+        Long productId = reserved.get().keySet().iterator().next();
+        return productRepository.findById(productId)
+                .map(product -> toResponse(product, product.getStockQuantity(), "Stock already reserved"));
+    }
+
+    private StockResponse toResponse(Product product, int remainingStock, String message) {
+        return StockResponse.builder()
+                .success(true)
+                .message(message)
+                .remainingStock(remainingStock)
+                .productId(product.getId())
+                .productName(product.getName())
+                .price(product.getPrice())
+                .build();
+    }
+
+    private record Pending(ReduceStockRequest request, CompletableFuture<StockResponse> result) {
+    }
+
+    private record Outcome(StockResponse response, RuntimeException refusal) {
+
+        private static Outcome reduced(StockResponse response) {
+            return new Outcome(response, null);
+        }
+
+        private static Outcome refused(RuntimeException refusal) {
+            return new Outcome(null, refusal);
+        }
+
+        private void complete(CompletableFuture<StockResponse> result) {
+            if (refusal != null) {
+                result.completeExceptionally(refusal);
+            } else {
+                result.complete(response);
+            }
+        }
+    }
+
+    // Only joined inside ConcurrentHashMap.compute for its product, which serializes joins. The leader
+    // reads the members after removing the batch from the map, so no request can join after that.
+    private static final class Batch {
+
+        private final Pending leader;
+        private final int maxSize;
+        private final List<Pending> pendings = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        private Batch(Pending leader, int maxSize) {
+            this.leader = leader;
+            this.maxSize = maxSize;
+            pendings.add(leader);
+            if (maxSize <= 1) {
+                full.countDown();
+            }
+        }
+
+        private boolean add(Pending pending) {
+            if (pendings.size() >= maxSize) {
+                return false;
+            }
+            pendings.add(pending);
+            if (pendings.size() >= maxSize) {
+                full.countDown();
+            }
+            return true;
+        }
+
+        private void awaitFull(Duration window) {
+            try {
+                full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.microservices.inventory.service;
+
+import com.microservices.inventory.entity.StockReservation;
+import com.microservices.inventory.exception.InsufficientStockException;
+import com.microservices.inventory.exception.ProductNotFoundException;
+import com.microservices.inventory.repository.ProductRepository;
+import com.microservices.inventory.repository.StockReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// In-memory stock ledger: reservations are admitted with compare-and-set against the ledger's
+// count and journalled in the request's transaction; the products table is written behind in
+// batches. Each journal entry records how much of it the table already reflects, so a flush
+// applies every entry once, and after a crash the count is rebuilt as the stored stock less the
+// entries not yet applied. The ledger must be the only writer of stock, so it holds a PostgreSQL
+// advisory lock: a second instance with the ledger enabled refuses to start, and reservations are
+// refused while the lock is lost. Reservations and releases change the counts only inside a
+// transaction, and the counts are dropped or rebuilt only while none of those transactions is
+// open, so a rebuild sees every change the counts had taken.
+@Component
+@ConditionalOnProperty(name = "inventory.stock.ledger.enabled", havingValue = "true")
+@Slf4j
+public class StockLedger {
+
+    private static final String LOCK_NAME = "inventory.stock.ledger";
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final int flushBatchSize;
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    // Shared by each transaction that changes the counts, until it completes; exclusive for a rebuild
+    private final ReadWriteLock countsLock = new ReentrantReadWriteLock();
+
+    // The session holding the advisory lock, kept open for as long as this instance owns the ledger
+    private volatile Connection lockConnection;
+
+    public StockLedger(ProductRepository productRepository,
+                       StockReservationRepository stockReservationRepository,
+                       TransactionTemplate transactionTemplate,
+                       DataSource dataSource,
+                       @Value("${inventory.stock.ledger.flush-batch-size:100}") int flushBatchSize) {
+        this.productRepository = productRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSource = dataSource;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @PostConstruct
+    public void acquireLock() {
+        if (!tryLock()) {
+            throw new IllegalStateException("The stock ledger is held by another inventory-service instance. "
+                    + "Enable inventory.stock.ledger.enabled on a single instance only.");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        countsLock.writeLock().lock();
+        try {
+            available.clear();
+            List<ProductRepository.StockLevel> levels = productRepository.findLedgerStockLevels();
+            levels.forEach(level -> available.put(level.getId(), new AtomicInteger(level.getStockQuantity())));
+            log.info("Stock ledger rebuilt from database. Tracked products: {}", levels.size());
+        } finally {
+            countsLock.writeLock().unlock();
+        }
+    }
+
+    // Must run in the transaction that journals the reservation; it is handed back if that rolls back
+    public int reserve(Long productId, int quantity) {
+        Changes changes = changes();
+        if (lockConnection == null) {
+            throw new IllegalStateException("Stock ledger lock is not held, refusing the reservation");
+        }
+        AtomicInteger count = countFor(productId);
+        while (true) {
+            int current = count.get();
+            if (current < quantity) {
+                throw new InsufficientStockException(
+                        "Insufficient stock. Available: " + current + ", Requested: " + quantity);
+            }
+            if (count.compareAndSet(current, current - quantity)) {
+                changes.reserved.merge(productId, quantity, Integer::sum);
+                return current - quantity;
+            }
+        }
+    }
+
+    // Must run in the transaction that marks the journal entry released; the stock becomes
+    // available again once that commits
+    public void release(Long productId, int quantity) {
+        changes().released.merge(productId, quantity, Integer::sum);
+    }
+
+    public Optional<Integer> available(Long productId) {
+        return Optional.ofNullable(available.get(productId)).map(AtomicInteger::get);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!holdsLock()) {
+            return;
+        }
+        try {
+            Integer applied;
+            do {
+                applied = transactionTemplate.execute(status -> flushBatch());
+            } while (applied != null && applied == flushBatchSize);
+        } catch (RuntimeException ex) {
+            log.error("Stock ledger flush failed, its entries stay pending: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing stock ledger before shutdown");
+        flush();
+        closeLockConnection();
+    }
+
+    // Applies a batch of pending journal entries and returns how many were applied. A product whose
+    // stored stock would go negative was changed behind the ledger's back: its entries stay pending
+    // and are retried, so no acknowledged reservation is dropped.
+    private int flushBatch() {
+        List<StockReservation> pending = stockReservationRepository.findUnappliedForUpdate(flushBatchSize);
+        Map<Long, List<StockReservation>> byProduct = pending.stream()
+                .collect(Collectors.groupingBy(StockReservation::getProductId, TreeMap::new, Collectors.toList()));
+        LocalDateTime now = LocalDateTime.now();
+        int applied = 0;
+        for (Map.Entry<Long, List<StockReservation>> product : byProduct.entrySet()) {
+            int delta = product.getValue().stream()
+                    .mapToInt(reservation -> reservation.heldQuantity() - reservation.getAppliedQuantity())
+                    .sum();
+            if (delta != 0 && productRepository.decrementStock(product.getKey(), delta, now) == 0) {
+                log.error("Stock ledger cannot take {} units from product id: {}, the stored stock is lower. "
+                        + "Its entries stay pending.", delta, product.getKey());
+                continue;
+            }
+            // Entries without a reference can never be replayed or released, so nothing is kept of them
+            product.getValue().forEach(reservation -> {
+                if (reservation.getReference() == null) {
+                    stockReservationRepository.delete(reservation);
+                } else {
+                    stockReservationRepository.markApplied(reservation.getId(), reservation.heldQuantity());
+                }
+            });
+            applied += product.getValue().size();
+        }
+        if (applied > 0) {
+            log.debug("Stock ledger flushed {} journal entries", applied);
+        }
+        return applied;
+    }
+
+    private AtomicInteger countFor(Long productId) {
+        AtomicInteger count = available.get(productId);
+        if (count != null) {
+            return count;
+        }
+        ProductRepository.StockLevel level = productRepository.findLedgerStockLevelById(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
+        return available.computeIfAbsent(productId, id -> new AtomicInteger(level.getStockQuantity()));
+    }
+
+    private Changes changes() {
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new Changes();
+            TransactionSynchronizationManager.registerSynchronization(changes);
+            countsLock.readLock().lock();
+            TransactionSynchronizationManager.bindResource(this, changes);
+        }
+        return changes;
+    }
+
+    // Checks the lock session before each flush. Once it is gone another instance may have written
+    // stock, so the counts are dropped, and rebuilt from the database as soon as the lock is taken again.
+    private boolean holdsLock() {
+        Connection connection = lockConnection;
+        if (connection != null) {
+            try {
+                if (connection.isValid(1)) {
+                    return true;
+                }
+            } catch (SQLException e) {
+                log.debug("Stock ledger lock check failed: {}", e.getMessage());
+            }
+            log.error("Stock ledger lost its lock, refusing reservations until it is taken again");
+            lockConnection = null;
+            countsLock.writeLock().lock();
+            try {
+                available.clear();
+            } finally {
+                countsLock.writeLock().unlock();
+            }
+            close(connection);
+        }
+        if (tryLock()) {
+            log.info("Stock ledger lock taken again");
+            rebuild();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean tryLock() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))")) {
+                statement.setString(1, LOCK_NAME);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (rows.next() && rows.getBoolean(1)) {
+                        lockConnection = connection;
+                        return true;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Could not take the stock ledger lock: {}", e.getMessage());
+        }
+        close(connection);
+        return false;
+    }
+
+    // The connection goes back to the pool, so the session lock has to be let go first
+    private void closeLockConnection() {
+        Connection connection = lockConnection;
+        lockConnection = null;
+        if (connection == null) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(hashtext(?))")) {
+            statement.setString(1, LOCK_NAME);
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Could not let go of the stock ledger lock: {}", e.getMessage());
+        }
+        close(connection);
+    }
+
+    // What one transaction reserved and released. Reservations are handed back unless it commits,
+    // releases only count once it has.
+    private class Changes implements TransactionSynchronization {
+
+        private final Map<Long, Integer> reserved = new HashMap<>();
+        private final Map<Long, Integer> released = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(StockLedger.this);
+            try {
+                (status == STATUS_COMMITTED ? released : reserved).forEach((productId, quantity) -> {
+                    AtomicInteger count = available.get(productId);
+                    if (count != null) {
+                        count.addAndGet(quantity);
+                    }
+                });
+            } finally {
+                countsLock.readLock().unlock();
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Closing the stock ledger lock connection failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.microservices.inventory.service;
+
+import com.microservices.inventory.entity.StockReservation;
+import com.microservices.inventory.exception.ReservationReleasedException;
+import com.microservices.inventory.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Records which stock each caller reference holds so that reservations can be replayed and
+// released exactly once. Releasing an unknown reference leaves a RELEASED tombstone, which makes
+// a reservation that arrives after its own compensation fail instead of leaking stock. Callers
+// say whether they write the stock change themselves in the same transaction; if not, the stock
+// ledger's flush applies it later. Applied entries are kept for inventory.stock.journal.retention,
+// which must outlast order-service's Idempotency-Key TTL and its saga recovery: a replay or release
+// after that finds nothing.
+@Component
+@Slf4j
+public class StockReservationJournal {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final Duration retention;
+
+    public StockReservationJournal(StockReservationRepository stockReservationRepository,
+                                   @Value("${inventory.stock.journal.retention:7d}") Duration retention) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.retention = retention;
+    }
+
+    public Optional<Map<Long, Integer>> findReserved(String reference) {
+        List<StockReservation> reservations = stockReservationRepository.findByReference(reference);
+        if (reservations.isEmpty()) {
+            return Optional.empty();
+        }
+        if (reservations.stream().anyMatch(r -> r.getStatus() == StockReservation.ReservationStatus.RELEASED)) {
+            throw new ReservationReleasedException("Reservation " + reference + " has already been released");
+        }
+        return Optional.of(reservations.stream()
+                .collect(Collectors.toMap(StockReservation::getProductId, StockReservation::getQuantity,
+                        Integer::sum, TreeMap::new)));
+    }
+
+    public void record(String reference, Map<Long, Integer> quantities, boolean stockWritten) {
+        stockReservationRepository.saveAll(quantities.entrySet().stream()
+                .map(line -> StockReservation.builder()
+                        .reference(reference)
+                        .productId(line.getKey())
+                        .quantity(line.getValue())
+                        .appliedQuantity(stockWritten ? line.getValue() : 0)
+                        .status(StockReservation.ReservationStatus.RESERVED)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    // Returns the quantities that were still held and must go back to stock
+    public Map<Long, Integer> release(String reference, Iterable<Long> productIds, boolean stockWritten) {
+        Map<Long, StockReservation> existing = stockReservationRepository.findByReference(reference).stream()
+                .collect(Collectors.toMap(StockReservation::getProductId, Function.identity()));
+
+        Map<Long, Integer> released = new TreeMap<>();
+        for (Long productId : productIds) {
+            StockReservation reservation = existing.get(productId);
+            if (reservation == null) {
+                stockReservationRepository.save(StockReservation.builder()
+                        .reference(reference)
+                        .productId(productId)
+                        .quantity(0)
+                        .appliedQuantity(0)
+                        .status(StockReservation.ReservationStatus.RELEASED)
+                        .build());
+            } else if (reservation.getStatus() == StockReservation.ReservationStatus.RESERVED) {
+                reservation.setStatus(StockReservation.ReservationStatus.RELEASED);
+                if (stockWritten) {
+                    reservation.setAppliedQuantity(0);
+                }
+                released.put(productId, reservation.getQuantity());
+            }
+        }
+        return released;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.journal.cleanup-interval-ms:3600000}")
+    public void removeExpired() {
+        int removed = stockReservationRepository.deleteAppliedBefore(LocalDateTime.now().minus(retention));
+        if (removed > 0) {
+            log.info("Removed {} stock reservation journal entries past retention", removed);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- The schema of the first release, as spring.jpa.hibernate.ddl-auto=update created it from the
+-- Product entity. The checks come from its @Min constraints. A database created that way is
+-- baselined at this version, so only the migrations after it run there.
+CREATE TABLE products (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name           varchar(255)   NOT NULL,
+    description    varchar(1000),
+    price          numeric(10, 2) NOT NULL CHECK (price >= 0),
+    stock_quantity integer        NOT NULL CHECK (stock_quantity >= 0),
+    image_url      varchar(255),
+    created_at     timestamp(6),
+    updated_at     timestamp(6)
+);
@@ -0,0 +1,24 @@
+-- The version column and the tables the stock strategies added after the first release. A database
+-- that ddl-auto=update kept up to date since then already has some of them.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id               bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    reference        varchar(64),
+    product_id       bigint       NOT NULL,
+    quantity         integer      NOT NULL,
+    status           varchar(255) NOT NULL CHECK (status IN ('RESERVED', 'RELEASED')),
+    applied_quantity integer      NOT NULL,
+    created_at       timestamp(6),
+    updated_at       timestamp(6),
+    CONSTRAINT stock_reservations_reference_product_id_key UNIQUE (reference, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS stock_shards (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id  bigint  NOT NULL,
+    shard_index integer NOT NULL,
+    quantity    integer NOT NULL,
+    updated_at  timestamp(6),
+    CONSTRAINT stock_shards_product_id_shard_index_key UNIQUE (product_id, shard_index)
+);
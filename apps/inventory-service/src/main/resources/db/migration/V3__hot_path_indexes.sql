@@ -0,0 +1,14 @@
+-- Journal entries the stock ledger has not flushed yet. The flush scans them in id order and the
+-- ledger stock levels join them by product; both see only the few unflushed rows.
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_unapplied ON stock_reservations (id)
+    WHERE applied_quantity <> CASE WHEN status = 'RESERVED' THEN quantity ELSE 0 END;
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_unapplied_product_id ON stock_reservations (product_id)
+    WHERE applied_quantity <> CASE WHEN status = 'RESERVED' THEN quantity ELSE 0 END;
+
+-- Journal cleanup deletes by age
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_created_at ON stock_reservations (created_at);
+
+-- Shard stock never goes below zero either, like products since the first release. There is
+-- deliberately no foreign key from the journal or the shards to products: it would take a key-share
+-- lock on the hot product row for every reservation insert.
+ALTER TABLE stock_shards ADD CONSTRAINT stock_shards_quantity_check CHECK (quantity >= 0);
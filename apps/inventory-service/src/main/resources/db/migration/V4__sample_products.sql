@@ -0,0 +1,20 @@
+-- The sample catalog, added once to an empty products table. It used to be inserted by a startup
+-- runner, which cost every pod start a count query.
+INSERT INTO products (name, description, price, stock_quantity, image_url, created_at, updated_at)
+SELECT sample.name, sample.description, sample.price, sample.stock_quantity, sample.image_url, now(), now()
+FROM (VALUES
+    ('Laptop', 'High-performance laptop with 16GB RAM and 512GB SSD', 1299.99, 15,
+     'https://images.unsplash.com/photo-1496181133206-80ce9b88a853?w=400', 1),
+    ('Wireless Mouse', 'Ergonomic wireless mouse with precision tracking', 29.99, 50,
+     'https://images.unsplash.com/photo-1527864550417-7fd91fc51a46?w=400', 2),
+    ('Mechanical Keyboard', 'RGB mechanical keyboard with Cherry MX switches', 89.99, 30,
+     'https://images.unsplash.com/photo-1595225476474-87563907a212?w=400', 3),
+    ('USB-C Hub', '7-in-1 USB-C hub with HDMI, USB 3.0, and SD card reader', 49.99, 40,
+     'https://images.unsplash.com/photo-1625948515291-69613efd103f?w=400', 4),
+    ('Monitor 27"', '4K UHD monitor with 144Hz refresh rate', 399.99, 20,
+     'https://images.unsplash.com/photo-1527443224154-c4a3942d3acf?w=400', 5),
+    ('Webcam HD', '1080p HD webcam with built-in microphone', 79.99, 25,
+     'https://images.unsplash.com/photo-1589792923962-537704632910?w=400', 6)
+) AS sample (name, description, price, stock_quantity, image_url, position)
+WHERE NOT EXISTS (SELECT 1 FROM products)
+ORDER BY sample.position;
@@ -0,0 +1,236 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// The flash-sale scenario of hot-product.js on this machine: every virtual user reserves one unit
+// of the same product directly on inventory-service, back to back. Each configuration gets its own
+// embedded database and inventory-service, so the concurrency strategies and shard counts are
+// compared on the same footing. Afterwards the stock that left the product must equal the
+// reservations that were acknowledged.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.HotProductBenchmark --vus=50 \
+//       --configurations=pessimistic,optimistic,conditional,shards:1,shards:4,shards:16
+@Slf4j
+public class HotProductBenchmark {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final double[] PERCENTILES = {50, 90, 99};
+    private static final long HOT_PRODUCT_ID = 1;
+
+    private record Configuration(String name, List<String> args) {
+    }
+
+    private record Run(String configuration, double reservedPerSecond, long reserved, Map<Integer, Long> refused,
+                       long errors, Histogram latency, double lockWaitMillis, long stockTaken) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int vus = Integer.parseInt(options.getOrDefault("vus", "50"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "10s").toUpperCase());
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s").toUpperCase());
+        int initialStock = Integer.parseInt(options.getOrDefault("initial-stock", "10000000"));
+        Path jar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+        List<String> jvmOptions = List.of(options.getOrDefault("jvm-opts", "-Xmx512m").trim().split("\\s+"));
+        List<Configuration> configurations = Arrays.stream(options.getOrDefault("configurations",
+                        "pessimistic,optimistic,conditional,shards:1,shards:2,shards:4,shards:8,shards:16").split(","))
+                .map(HotProductBenchmark::configuration)
+                .toList();
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "hot-product-benchmark"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<Run> runs = new ArrayList<>();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .start()) {
+            for (int i = 0; i < configurations.size(); i++) {
+                Configuration configuration = configurations.get(i);
+                String database = "hot_product_" + i;
+                try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE DATABASE " + database);
+                }
+                DataSource dataSource = postgres.getDatabase(DATABASE_USER, database);
+                List<String> serviceArgs = new ArrayList<>();
+                serviceArgs.add("--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, database));
+                serviceArgs.add("--spring.datasource.username=" + DATABASE_USER);
+                serviceArgs.add("--spring.datasource.password=");
+                serviceArgs.add("--spring.cloud.gcp.sql.enabled=false");
+                // Health waits for the sample products to be seeded
+                serviceArgs.add("--management.endpoint.health.probes.enabled=true");
+                serviceArgs.addAll(configuration.args());
+                String name = "inventory-service-" + configuration.name().replace(':', '-');
+
+                // The first start creates the schema and the sample products. Shards are split from the
+                // product row at startup, so the service is restarted on the stocked product.
+                long productId = HOT_PRODUCT_ID;
+                try (ServiceProcess inventory = ServiceProcess.start(name, jar, jvmOptions, serviceArgs, logDirectory)) {
+                    inventory.awaitHealthy(httpClient);
+                    restock(dataSource, productId, initialStock);
+                }
+                try (ServiceProcess inventory = ServiceProcess.start(name, jar, jvmOptions, serviceArgs, logDirectory);
+                     LockWaitSampler lockWaits = new LockWaitSampler(postgres.getPostgresDatabase())) {
+                    inventory.awaitHealthy(httpClient);
+                    log.info("{}: {} virtual users for {} after {} warm-up", configuration.name(), vus, duration, warmup);
+                    Run run = drive(configuration.name(), httpClient, inventory.baseUrl(), productId, vus, warmup,
+                            duration, lockWaits, database);
+                    long stockTaken = initialStock - stock(dataSource, productId);
+                    runs.add(new Run(run.configuration(), run.reservedPerSecond(), run.reserved(), run.refused(),
+                            run.errors(), run.latency(), run.lockWaitMillis(), stockTaken));
+                }
+            }
+        }
+
+        boolean passed = print(runs);
+        System.exit(passed ? 0 : 1);
+    }
+
+    // pessimistic, optimistic and conditional pick the row-level strategy; shards:N splits the stock into N rows.
+    private static Configuration configuration(String name) {
+        if (name.startsWith("shards:")) {
+            return new Configuration(name, List.of("--inventory.stock.shards.enabled=true",
+                    "--inventory.stock.shards.product-ids=" + HOT_PRODUCT_ID,
+                    "--inventory.stock.shards.count=" + name.substring("shards:".length())));
+        }
+        return new Configuration(name, List.of("--inventory.stock.concurrency=" + name));
+    }
+
+    private static void restock(DataSource dataSource, long productId, int stock) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE products SET stock_quantity = " + stock + " WHERE id = " + productId);
+            // The shards already took the sample stock; the restart splits the new stock instead
+            statement.execute("DELETE FROM stock_shards WHERE product_id = " + productId);
+        }
+    }
+
+    private static int stock(DataSource dataSource, long productId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT p.stock_quantity + coalesce((SELECT sum(s.quantity) "
+                     + "FROM stock_shards s WHERE s.product_id = p.id), 0) FROM products p WHERE p.id = " + productId)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    // Closed model, as k6's constant-vus executor: each virtual user sends its next reservation as
+    // soon as the previous one is answered
+    private static Run drive(String configuration, HttpClient httpClient, String baseUrl, long productId, int vus,
+                             Duration warmup, Duration duration, LockWaitSampler lockWaits, String database)
+            throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/reduce-stock"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"productId\": " + productId + ", \"quantity\": 1}"))
+                .build();
+        Histogram latency = new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos() / 1_000 * 2, 3);
+        LongAdder reserved = new LongAdder();
+        LongAdder reservedMeasured = new LongAdder();
+        LongAdder errors = new LongAdder();
+        Map<Integer, LongAdder> refused = new ConcurrentHashMap<>();
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        ExecutorService users = Executors.newFixedThreadPool(vus);
+        for (int vu = 0; vu < vus; vu++) {
+            users.submit(() -> {
+                long started;
+                while ((started = System.nanoTime()) < end) {
+                    boolean measuring = started >= measureFrom;
+                    int status;
+                    try {
+                        status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        errors.increment();
+                        continue;
+                    }
+                    if (status == 200) {
+                        reserved.increment();
+                    }
+                    if (measuring) {
+                        latency.recordValue(Math.min((System.nanoTime() - started) / 1_000, latency.getHighestTrackableValue()));
+                        if (status == 200) {
+                            reservedMeasured.increment();
+                        } else {
+                            refused.computeIfAbsent(status, ignored -> new LongAdder()).increment();
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        long wait = measureFrom - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        lockWaits.start();
+        users.shutdown();
+        users.awaitTermination(duration.toSeconds() + REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS);
+
+        Map<Integer, Long> refusedCounts = new TreeMap<>();
+        refused.forEach((status, count) -> refusedCounts.put(status, count.sum()));
+        return new Run(configuration, reservedMeasured.sum() / (duration.toNanos() / 1e9), reserved.sum(),
+                refusedCounts, errors.sum(), latency, lockWaits.waitMillis().getOrDefault(database, 0.0), 0);
+    }
+
+    private static boolean print(List<Run> runs) {
+        boolean passed = true;
+        System.out.println();
+        System.out.printf("%-14s %12s %9s %9s %9s %14s  %s%n", "configuration", "reserved/s", "p50 (ms)",
+                "p90 (ms)", "p99 (ms)", "lock wait (ms)", "refused by status");
+        for (Run run : runs) {
+            System.out.printf("%-14s %12.1f", run.configuration(), run.reservedPerSecond());
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %9.1f", run.latency().getValueAtPercentile(percentile) / 1000.0);
+            }
+            System.out.printf(" %14.0f  %s%n", run.lockWaitMillis(), run.refused().isEmpty() ? "none" : run.refused());
+            if (run.errors() > 0) {
+                System.out.printf("  %d requests failed without a response%n", run.errors());
+            }
+            // A request without a response may still have reserved, so it only excuses extra stock taken
+            if (run.stockTaken() < run.reserved() || run.stockTaken() > run.reserved() + run.errors()) {
+                System.out.printf("  FAILED stock audit: %d units left the product, %d reservations acknowledged%n",
+                        run.stockTaken(), run.reserved());
+                passed = false;
+            }
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,211 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Idempotency-Key handling of order-service with two replicas on one database:
+// - a retry on the other replica, with its fields in another order, replays the stored response;
+// - a keyed order is numbered by the time-ordered generator like any other;
+// - the same key with a different request is refused;
+// - concurrent requests under one key create one order, the others replay it or are refused;
+// - a failed request leaves its key free, so the retry runs again;
+// - a key abandoned mid-request is taken over, and the re-run finds the order the first run placed.
+// Every scenario also checks that inventory reserved stock exactly once.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.IdempotencyCheck
+@Slf4j
+public class IdempotencyCheck {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final int INITIAL_STOCK = 100;
+    private static final int CONCURRENT_REQUESTS = 10;
+    private static final Pattern ORDER_NUMBER = Pattern.compile("\"orderNumber\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern TIME_ORDERED_NUMBER = Pattern.compile("ORD-[0-9A-HJKMNP-TV-Z]{20}");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Path inventoryJar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+        Path orderJar = Path.of(options.getOrDefault("order-jar", "order-service/target/order-service-1.0.0-exec.jar"));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "idempotency-check"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> failures = new ArrayList<>();
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            for (String database : List.of("inventory_db", "order_db")) {
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE " + database);
+            }
+            DataSource inventoryDb = postgres.getDatabase(DATABASE_USER, "inventory_db");
+            DataSource orderDb = postgres.getDatabase(DATABASE_USER, "order_db");
+
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service", inventoryJar, List.of("-Xmx384m"),
+                    args(postgres, "inventory_db"), logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+                execute(inventoryDb, "UPDATE products SET stock_quantity = " + INITIAL_STOCK + " WHERE id <= 5");
+
+                List<String> orderArgs = new ArrayList<>(args(postgres, "order_db"));
+                orderArgs.add("--inventory.service.url=" + inventory.baseUrl());
+                try (ServiceProcess first = ServiceProcess.start("order-service-1", orderJar, List.of("-Xmx384m"),
+                        orderArgs, logDirectory);
+                     ServiceProcess second = ServiceProcess.start("order-service-2", orderJar, List.of("-Xmx384m"),
+                             orderArgs, logDirectory)) {
+                    first.awaitHealthy(httpClient);
+                    second.awaitHealthy(httpClient);
+
+                    HttpResponse<String> created = order(httpClient, first.baseUrl(), "replay",
+                            "{\"productId\": 1, \"quantity\": 2}");
+                    HttpResponse<String> replayed = order(httpClient, second.baseUrl(), "replay",
+                            "{\"quantity\": 2, \"productId\": 1}");
+                    check(failures, created.statusCode() == 201 && replayed.statusCode() == 201
+                                    && orderNumber(created).equals(orderNumber(replayed)),
+                            "a retry on the other replica replays the stored order");
+                    check(failures, TIME_ORDERED_NUMBER.matcher(orderNumber(created)).matches(),
+                            "a keyed order is numbered by the order number generator");
+                    check(failures, orders(orderDb, orderNumber(created)) == 1 && stock(inventoryDb, 1) == INITIAL_STOCK - 2,
+                            "the replayed order is placed and reserved once");
+
+                    HttpResponse<String> changed = order(httpClient, second.baseUrl(), "replay",
+                            "{\"productId\": 1, \"quantity\": 3}");
+                    check(failures, changed.statusCode() == 409 && stock(inventoryDb, 1) == INITIAL_STOCK - 2,
+                            "the same key with a different request is refused");
+
+                    List<CompletableFuture<HttpResponse<String>>> concurrent = new ArrayList<>();
+                    for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                        String baseUrl = i % 2 == 0 ? first.baseUrl() : second.baseUrl();
+                        concurrent.add(httpClient.sendAsync(orderRequest(baseUrl, "concurrent",
+                                "{\"productId\": 2, \"quantity\": 1}"), HttpResponse.BodyHandlers.ofString()));
+                    }
+                    Set<String> orderNumbers = new HashSet<>();
+                    boolean answered = true;
+                    for (CompletableFuture<HttpResponse<String>> response : concurrent) {
+                        HttpResponse<String> result = response.join();
+                        if (result.statusCode() == 201) {
+                            orderNumbers.add(orderNumber(result));
+                        } else {
+                            answered &= result.statusCode() == 409;
+                        }
+                    }
+                    check(failures, answered && orderNumbers.size() == 1,
+                            "concurrent requests under one key get one order or a conflict");
+                    check(failures, count(orderDb, "SELECT count(*) FROM orders o JOIN order_items i ON i.order_id = o.id "
+                                    + "WHERE i.product_id = 2") == 1 && stock(inventoryDb, 2) == INITIAL_STOCK - 1,
+                            "concurrent requests under one key place and reserve one order");
+
+                    execute(inventoryDb, "UPDATE products SET stock_quantity = 0 WHERE id = 3");
+                    HttpResponse<String> refused = order(httpClient, first.baseUrl(), "sold-out",
+                            "{\"productId\": 3, \"quantity\": 1}");
+                    execute(inventoryDb, "UPDATE products SET stock_quantity = " + INITIAL_STOCK + " WHERE id = 3");
+                    HttpResponse<String> retried = order(httpClient, second.baseUrl(), "sold-out",
+                            "{\"productId\": 3, \"quantity\": 1}");
+                    check(failures, refused.statusCode() != 201 && retried.statusCode() == 201
+                                    && stock(inventoryDb, 3) == INITIAL_STOCK - 1,
+                            "a failed request leaves its key free for the retry");
+
+                    // As if the first run died after placing the order but before storing its response
+                    HttpResponse<String> placed = order(httpClient, first.baseUrl(), "abandoned",
+                            "{\"productId\": 4, \"quantity\": 1}");
+                    execute(orderDb, "UPDATE idempotency_keys SET response_status = NULL, response_body = NULL, "
+                            + "locked_at = now() - interval '1 hour' WHERE idempotency_key = 'abandoned'");
+                    HttpResponse<String> takenOver = order(httpClient, second.baseUrl(), "abandoned",
+                            "{\"productId\": 4, \"quantity\": 1}");
+                    check(failures, takenOver.statusCode() == 201 && orderNumber(takenOver).equals(orderNumber(placed))
+                                    && orders(orderDb, orderNumber(placed)) == 1 && stock(inventoryDb, 4) == INITIAL_STOCK - 1,
+                            "an abandoned key is taken over and the re-run returns the placed order");
+                }
+            }
+        }
+
+        failures.forEach(failure -> log.error("FAILED {}", failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> args(EmbeddedPostgres postgres, String database) {
+        return List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, database),
+                "--spring.datasource.username=" + DATABASE_USER,
+                "--spring.datasource.password=",
+                "--spring.cloud.gcp.sql.enabled=false",
+                // Inventory reports ready only once the sample products are seeded
+                "--management.endpoint.health.probes.enabled=true");
+    }
+
+    private static HttpResponse<String> order(HttpClient httpClient, String baseUrl, String key, String body)
+            throws IOException, InterruptedException {
+        return httpClient.send(orderRequest(baseUrl, key, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest orderRequest(String baseUrl, String key, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String orderNumber(HttpResponse<String> response) {
+        Matcher matcher = ORDER_NUMBER.matcher(response.body());
+        return matcher.find() ? matcher.group(1) : "none (" + response.statusCode() + ")";
+    }
+
+    private static int orders(DataSource orderDb, String orderNumber) throws SQLException {
+        return count(orderDb, "SELECT count(*) FROM orders WHERE order_number = '" + orderNumber + "'");
+    }
+
+    private static int stock(DataSource inventoryDb, long productId) throws SQLException {
+        return count(inventoryDb, "SELECT stock_quantity FROM products WHERE id = " + productId);
+    }
+
+    private static void check(List<String> failures, boolean passed, String expectation) {
+        if (passed) {
+            log.info("OK {}", expectation);
+        } else {
+            failures.add(expectation);
+        }
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int count(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs both services against an embedded PostgreSQL on this machine, drives open-model order
+// traffic at them and audits the stock afterwards. Nothing leaves localhost.
+@Slf4j
+public class LoadTestApplication {
+
+    private static final String DATABASE_USER = "postgres";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Path logDirectory = Files.createDirectories(Path.of("target", "load-test"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        boolean passed;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .start()) {
+            DataSource admin = postgres.getPostgresDatabase();
+            createDatabase(admin, "inventory_db");
+            createDatabase(admin, "order_db");
+            StockAudit audit = new StockAudit(postgres.getDatabase(DATABASE_USER, "inventory_db"),
+                    postgres.getDatabase(DATABASE_USER, "order_db"));
+
+            List<String> inventoryArgs = serviceArgs(postgres.getJdbcUrl(DATABASE_USER, "inventory_db"),
+                    config.inventoryArgs());
+
+            // The first start creates the schema and the sample products. The ledger and the shards
+            // read stock at startup, so the service is restarted on the seeded catalog.
+            List<Long> productIds;
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service", config.inventoryJar(),
+                    config.jvmOptions(), inventoryArgs, logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+                productIds = audit.prepare(config.products(), config.initialStock());
+            }
+
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service", config.inventoryJar(),
+                    config.jvmOptions(), inventoryArgs, logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+
+                List<String> orderArgs = new ArrayList<>();
+                orderArgs.add("--inventory.service.url=" + inventory.baseUrl());
+                // Recover in-doubt sagas soon after the driver's request timeout rather than after minutes
+                orderArgs.add("--order.saga.in-doubt-after=35s");
+                orderArgs.add("--order.saga.recovery-interval-ms=5000");
+                orderArgs.addAll(config.orderArgs());
+                try (ServiceProcess order = ServiceProcess.start("order-service", config.orderJar(),
+                        config.jvmOptions(), serviceArgs(postgres.getJdbcUrl(DATABASE_USER, "order_db"), orderArgs),
+                        logDirectory)) {
+                    order.awaitHealthy(httpClient);
+
+                    // order-service owns the schema and recovers in-doubt sagas. With --order-stack=webflux the
+                    // orders go to the reactive service on the same database, as in compose.loadtest.yaml.
+                    try (ServiceProcess reactive = config.orderStack().equals("webflux")
+                            ? ServiceProcess.start("order-service-reactive", config.reactiveOrderJar(),
+                                    config.jvmOptions(), reactiveArgs(postgres.getPort(), orderArgs), logDirectory)
+                            : null) {
+                        ServiceProcess orders = reactive != null ? reactive : order;
+                        orders.awaitHealthy(httpClient);
+
+                        LockWaitSampler lockWaits = new LockWaitSampler(admin);
+                        OpenModelDriver.Results results;
+                        try (lockWaits) {
+                            results = new OpenModelDriver(config, new Workload(config, productIds), httpClient,
+                                    inventory.baseUrl(), orders.baseUrl())
+                                    .run(lockWaits::start);
+                        }
+
+                        audit.awaitSettled(config.settle());
+                        StockAudit.Result audited = audit.check();
+                        Report.print(System.out, config, results, lockWaits, audited);
+                        passed = audited.passed();
+                    }
+                }
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void createDatabase(DataSource admin, String name) throws SQLException {
+        try (Connection connection = admin.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + name);
+        }
+    }
+
+    private static List<String> serviceArgs(String jdbcUrl, List<String> extraArgs) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=" + jdbcUrl);
+        args.add("--spring.datasource.username=" + DATABASE_USER);
+        args.add("--spring.datasource.password=");
+        args.add("--spring.cloud.gcp.sql.enabled=false");
+        args.add("--spring.jpa.show-sql=false");
+        // Health waits for the sample products to be seeded
+        args.add("--management.endpoint.health.probes.enabled=true");
+        args.addAll(extraArgs);
+        return args;
+    }
+
+    private static List<String> reactiveArgs(int postgresPort, List<String> extraArgs) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.r2dbc.url=r2dbc:postgresql://localhost:" + postgresPort + "/order_db");
+        args.add("--spring.r2dbc.username=" + DATABASE_USER);
+        // Embedded PostgreSQL trusts local connections, but the R2DBC driver refuses an empty password
+        args.add("--spring.r2dbc.password=" + DATABASE_USER);
+        args.addAll(extraArgs);
+        return args;
+    }
+}
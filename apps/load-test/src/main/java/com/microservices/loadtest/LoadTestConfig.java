@@ -0,0 +1,101 @@
+package com.microservices.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Run settings, given on the command line as --name=value
+public record LoadTestConfig(
+        double rate,
+        Duration warmup,
+        Duration duration,
+        Duration settle,
+        double readRatio,
+        int products,
+        int hotProducts,
+        double hotShare,
+        Map<Integer, Integer> cartSizes,
+        int initialStock,
+        long seed,
+        int maxInFlight,
+        Path inventoryJar,
+        Path orderJar,
+        String orderStack,
+        Path reactiveOrderJar,
+        List<String> jvmOptions,
+        List<String> inventoryArgs,
+        List<String> orderArgs) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                Double.parseDouble(options.getOrDefault("rate", "100")),
+                duration(options.getOrDefault("warmup", "10s")),
+                duration(options.getOrDefault("duration", "60s")),
+                duration(options.getOrDefault("settle", "60s")),
+                Double.parseDouble(options.getOrDefault("read-ratio", "0.5")),
+                Integer.parseInt(options.getOrDefault("products", "100")),
+                Integer.parseInt(options.getOrDefault("hot-products", "1")),
+                Double.parseDouble(options.getOrDefault("hot-share", "0.3")),
+                cartSizes(options.getOrDefault("cart-sizes", "1:50,2:25,3:15,5:10")),
+                Integer.parseInt(options.getOrDefault("initial-stock", "1000")),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "2000")),
+                Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar")),
+                Path.of(options.getOrDefault("order-jar", "order-service/target/order-service-1.0.0-exec.jar")),
+                options.getOrDefault("order-stack", "mvc"),
+                Path.of(options.getOrDefault("reactive-order-jar",
+                        "order-service-reactive/target/order-service-reactive-1.0.0.jar")),
+                words(options.getOrDefault("jvm-opts", "-Xmx512m")),
+                words(options.getOrDefault("inventory-args", "")),
+                words(options.getOrDefault("order-args", "")));
+
+        options.keySet().removeAll(List.of("rate", "warmup", "duration", "settle", "read-ratio", "products",
+                "hot-products", "hot-share", "cart-sizes", "initial-stock", "seed", "max-in-flight",
+                "inventory-jar", "order-jar", "order-stack", "reactive-order-jar", "jvm-opts", "inventory-args", "order-args"));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (!List.of("mvc", "webflux").contains(config.orderStack())) {
+            throw new IllegalArgumentException("order-stack must be mvc or webflux");
+        }
+        if (config.hotProducts() > config.products()) {
+            throw new IllegalArgumentException("hot-products cannot exceed products");
+        }
+        int largestCart = config.cartSizes().keySet().stream().max(Integer::compare).orElse(1);
+        if (largestCart > config.products()) {
+            throw new IllegalArgumentException("cart-sizes cannot exceed products");
+        }
+        return config;
+    }
+
+    // Accepts 90s, 2m, 1m30s
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    // Cart size to relative weight, e.g. 1:50,2:25,3:15,5:10
+    private static Map<Integer, Integer> cartSizes(String value) {
+        Map<Integer, Integer> sizes = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            sizes.put(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return sizes;
+    }
+
+    private static List<String> words(String value) {
+        return value.isBlank() ? List.of() : Arrays.asList(value.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.microservices.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Samples pg_stat_activity for backends waiting on a heavyweight lock (row locks included).
+// Waiting backends times the time since the previous sample approximates total lock-wait time
+// per database.
+@Slf4j
+public class LockWaitSampler implements AutoCloseable {
+
+    private static final long INTERVAL_MILLIS = 10;
+
+    private final DataSource dataSource;
+    private final Map<String, Double> waitMillis = new TreeMap<>();
+    private final Map<String, Integer> peakWaiting = new TreeMap<>();
+    private Thread thread;
+
+    public LockWaitSampler(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void start() {
+        thread = new Thread(this::sample, "lock-wait-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    public synchronized Map<String, Double> waitMillis() {
+        return new TreeMap<>(waitMillis);
+    }
+
+    public synchronized Map<String, Integer> peakWaiting() {
+        return new TreeMap<>(peakWaiting);
+    }
+
+    private void sample() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT datname, count(*) FROM pg_stat_activity " +
+                             "WHERE wait_event_type = 'Lock' AND datname IS NOT NULL GROUP BY datname")) {
+            long previous = System.nanoTime();
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                double elapsedMillis = (now - previous) / 1_000_000.0;
+                previous = now;
+                try (ResultSet rows = statement.executeQuery()) {
+                    synchronized (this) {
+                        while (rows.next()) {
+                            String database = rows.getString(1);
+                            int waiting = rows.getInt(2);
+                            waitMillis.merge(database, waiting * elapsedMillis, Double::sum);
+                            peakWaiting.merge(database, waiting, Math::max);
+                        }
+                    }
+                }
+                Thread.sleep(INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            log.warn("Lock wait sampling stopped: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+// Flyway migrations of inventory_db and order_db on an embedded PostgreSQL, in two scenarios:
+// - empty databases, migrated from the first version;
+// - databases of the first release, with a product and an order in them, baselined and upgraded.
+//   Their schema is V1 as the service jars ship it, which is what ddl-auto=update created then.
+// In both the services start with Hibernate validating the migrated schema against the entities,
+// the hot-path indexes must exist and an order must go through.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.MigrationCheck
+@Slf4j
+public class MigrationCheck {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final List<String> INVENTORY_INDEXES = List.of(
+            "idx_stock_reservations_unapplied",
+            "idx_stock_reservations_unapplied_product_id",
+            "idx_stock_reservations_created_at");
+    private static final List<String> ORDER_INDEXES = List.of(
+            "idx_order_items_order_id",
+            "idx_orders_created_at",
+            "idx_order_outbox_available_at",
+            "idx_order_sagas_status_updated_at",
+            "idx_order_saga_lines_saga_id",
+            "idx_idempotency_keys_expires_at");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Path inventoryJar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+        Path orderJar = Path.of(options.getOrDefault("order-jar", "order-service/target/order-service-1.0.0-exec.jar"));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "migration-check"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> failures = new ArrayList<>();
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            for (String scenario : List.of("fresh", "upgraded")) {
+                String inventoryDatabase = "inventory_" + scenario;
+                String orderDatabase = "order_" + scenario;
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE " + inventoryDatabase);
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE " + orderDatabase);
+                DataSource inventoryDb = postgres.getDatabase(DATABASE_USER, inventoryDatabase);
+                DataSource orderDb = postgres.getDatabase(DATABASE_USER, orderDatabase);
+
+                if (scenario.equals("upgraded")) {
+                    execute(inventoryDb, baselineSchema(inventoryJar));
+                    execute(orderDb, baselineSchema(orderJar));
+                    execute(inventoryDb, "INSERT INTO products (name, description, price, stock_quantity, created_at, updated_at) "
+                            + "VALUES ('Laptop', 'High-performance laptop with 16GB RAM and 512GB SSD', 1299.99, 15, now(), now())");
+                    execute(orderDb, "INSERT INTO orders (order_number, total_amount, status, created_at, updated_at) "
+                            + "VALUES ('ORD-FIRST-RELEASE', 1299.99, 'CONFIRMED', now(), now())");
+                    execute(orderDb, "INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, total_price) "
+                            + "SELECT id, 1, 'Laptop', 1, 1299.99, 1299.99 FROM orders");
+                }
+                int existingItems = queryInt(orderDb, "SELECT count(*) FROM order_items");
+
+                List<String> validated = List.of("--spring.jpa.hibernate.ddl-auto=validate");
+                try (ServiceProcess inventory = ServiceProcess.start("inventory-service-" + scenario, inventoryJar,
+                        List.of("-Xmx384m"), args(postgres, inventoryDatabase, validated), logDirectory)) {
+                    inventory.awaitHealthy(httpClient);
+                    List<String> orderArgs = new ArrayList<>(validated);
+                    orderArgs.add("--inventory.service.url=" + inventory.baseUrl());
+                    try (ServiceProcess order = ServiceProcess.start("order-service-" + scenario, orderJar,
+                            List.of("-Xmx384m"), args(postgres, orderDatabase, orderArgs), logDirectory)) {
+                        order.awaitHealthy(httpClient);
+                        log.info("Checking {} databases", scenario);
+
+                        List<String> missing = missingIndexes(inventoryDb, INVENTORY_INDEXES);
+                        check(failures, missing.isEmpty(), scenario + ": inventory_db has its hot-path indexes"
+                                + (missing.isEmpty() ? "" : ", missing " + missing));
+                        missing = missingIndexes(orderDb, ORDER_INDEXES);
+                        check(failures, missing.isEmpty(), scenario + ": order_db has its hot-path indexes"
+                                + (missing.isEmpty() ? "" : ", missing " + missing));
+                        check(failures, queryInt(orderDb, "SELECT count(*) FROM flyway_schema_history WHERE NOT success") == 0,
+                                scenario + ": every order_db migration succeeded");
+
+                        execute(inventoryDb, "UPDATE products SET stock_quantity = 10 WHERE id = 1");
+                        HttpResponse<String> placed = httpClient.send(HttpRequest.newBuilder(URI.create(order.baseUrl() + "/api/orders"))
+                                        .header("Content-Type", "application/json")
+                                        .timeout(Duration.ofSeconds(30))
+                                        .POST(HttpRequest.BodyPublishers.ofString("{\"productId\": 1, \"quantity\": 2}"))
+                                        .build(),
+                                HttpResponse.BodyHandlers.ofString());
+                        check(failures, placed.statusCode() == 201
+                                        && queryInt(orderDb, "SELECT count(*) FROM order_items") == existingItems + 1
+                                        && queryInt(inventoryDb, "SELECT stock_quantity FROM products WHERE id = 1") == 8,
+                                scenario + ": an order is placed on the migrated schema");
+                        check(failures, !succeeds(inventoryDb, "UPDATE products SET stock_quantity = -1 WHERE id = 1"),
+                                scenario + ": negative stock is refused by the database");
+                    }
+                }
+            }
+        }
+
+        failures.forEach(failure -> log.error("FAILED {}", failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> args(EmbeddedPostgres postgres, String database, List<String> extra) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, database),
+                "--spring.datasource.username=" + DATABASE_USER,
+                "--spring.datasource.password=",
+                "--spring.cloud.gcp.sql.enabled=false",
+                // Inventory reports ready only once the sample products are seeded
+                "--management.endpoint.health.probes.enabled=true"));
+        args.addAll(extra);
+        return args;
+    }
+
+    // The first migration of a service, read from its jar
+    private static String baselineSchema(Path jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile());
+             InputStream script = jarFile.getInputStream(jarFile.getJarEntry("BOOT-INF/classes/db/migration/V1__baseline.sql"))) {
+            return new String(script.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> missingIndexes(DataSource dataSource, List<String> indexes) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        for (String index : indexes) {
+            if (queryInt(dataSource, "SELECT count(*) FROM pg_indexes WHERE indexname = '" + index + "'") == 0) {
+                missing.add(index);
+            }
+        }
+        return missing;
+    }
+
+    private static boolean succeeds(DataSource dataSource, String sql) {
+        try {
+            execute(dataSource, sql);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void check(List<String> failures, boolean passed, String expectation) {
+        if (passed) {
+            log.info("OK {}", expectation);
+        } else {
+            failures.add(expectation);
+        }
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int queryInt(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.microservices.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model traffic: requests start on a Poisson schedule whether or not earlier ones have
+// finished, and latency is measured from the scheduled start. A stalled service therefore shows
+// up in the percentiles instead of quietly lowering the offered load.
+@Slf4j
+public class OpenModelDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final Workload workload;
+    private final HttpClient httpClient;
+    private final String inventoryUrl;
+    private final String orderUrl;
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap.KeySetView<CompletableFuture<?>, Boolean> pending = ConcurrentHashMap.newKeySet();
+
+    public OpenModelDriver(LoadTestConfig config, Workload workload, HttpClient httpClient,
+                           String inventoryUrl, String orderUrl) {
+        this.config = config;
+        this.workload = workload;
+        this.httpClient = httpClient;
+        this.inventoryUrl = inventoryUrl;
+        this.orderUrl = orderUrl;
+    }
+
+    public Results run(Runnable onMeasurementStart) throws InterruptedException {
+        Results results = new Results();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+
+        log.info("Warming up for {}", config.warmup());
+        boolean measuring = false;
+        long scheduled = start;
+        while (true) {
+            scheduled += workload.nextGapNanos(config.rate());
+            if (scheduled >= end) {
+                break;
+            }
+            if (!measuring && scheduled >= measureFrom) {
+                measuring = true;
+                onMeasurementStart.run();
+                log.info("Measuring for {} at {} requests/s", config.duration(), config.rate());
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            fire(scheduled, measuring ? results : null);
+        }
+
+        log.info("Waiting for {} requests still in flight", pending.size());
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .completeOnTimeout(null, REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)
+                .join();
+        results.elapsedNanos = config.duration().toNanos();
+        return results;
+    }
+
+    private void fire(long scheduled, Results results) {
+        boolean read = workload.nextIsRead();
+        HttpRequest request = read ? productRequest(workload.nextProductId()) : orderRequest();
+        if (inFlight.get() >= config.maxInFlight()) {
+            if (results != null) {
+                results.dropped.increment();
+            }
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        CompletableFuture<?> future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long latencyMicros = (System.nanoTime() - scheduled) / 1_000;
+                    inFlight.decrementAndGet();
+                    if (results != null) {
+                        results.record(read, latencyMicros, error == null ? response.statusCode() : -1);
+                    }
+                    return null;
+                });
+        pending.add(future);
+        future.whenComplete((ignored, error) -> pending.remove(future));
+    }
+
+    private HttpRequest productRequest(long productId) {
+        return HttpRequest.newBuilder(URI.create(inventoryUrl + "/api/products/" + productId))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest orderRequest() {
+        return HttpRequest.newBuilder(URI.create(orderUrl + "/api/orders/cart"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", "load-test-" + config.seed() + "-" + sequence.incrementAndGet())
+                .POST(HttpRequest.BodyPublishers.ofString(Workload.cartBody(workload.nextCart())))
+                .build();
+    }
+
+    public static class Results {
+
+        // Microseconds, up to the request timeout
+        final Histogram readLatency = new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos() / 1_000 * 2, 3);
+        final Histogram orderLatency = new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos() / 1_000 * 2, 3);
+        final LongAdder reads = new LongAdder();
+        final LongAdder readErrors = new LongAdder();
+        final LongAdder ordersConfirmed = new LongAdder();
+        final LongAdder ordersRejected = new LongAdder();
+        final LongAdder ordersFailed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        long elapsedNanos;
+
+        private void record(boolean read, long latencyMicros, int status) {
+            Histogram histogram = read ? readLatency : orderLatency;
+            histogram.recordValue(Math.min(latencyMicros, histogram.getHighestTrackableValue()));
+            if (read) {
+                reads.increment();
+                if (status != 200) {
+                    readErrors.increment();
+                }
+            } else if (status == 201) {
+                ordersConfirmed.increment();
+            } else if (status >= 400 && status < 500) {
+                // Out of stock, unknown product or a released reservation: a correct refusal
+                ordersRejected.increment();
+            } else {
+                ordersFailed.increment();
+            }
+        }
+
+        double throughput() {
+            long completed = readLatency.getTotalCount() + orderLatency.getTotalCount();
+            return completed / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
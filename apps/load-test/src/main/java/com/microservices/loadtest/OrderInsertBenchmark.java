@@ -0,0 +1,164 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+// Order inserts per second against an embedded PostgreSQL, replaying the statements Hibernate sends
+// for each id strategy. With identity ids every order and item row is its own INSERT ... RETURNING
+// round trip. With pooled sequence ids one nextval covers 50 rows and the rows go out as JDBC
+// batches, which the driver rewrites into multi-row inserts.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.OrderInsertBenchmark --orders=20000
+public class OrderInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int orders = Integer.parseInt(options.getOrDefault("orders", "20000"));
+        int items = Integer.parseInt(options.getOrDefault("items", "3"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            Properties properties = new Properties();
+            properties.setProperty("user", "postgres");
+            properties.setProperty("reWriteBatchedInserts", "true");
+            try (Connection connection = DriverManager.getConnection(
+                    postgres.getJdbcUrl("postgres", "postgres"), properties)) {
+                connection.setAutoCommit(false);
+                System.out.printf("%-14s %-20s %12s %14s%n", "ids", "orders/transaction", "orders/s", "row inserts/s");
+                for (int ordersPerTransaction : new int[]{1, 50}) {
+                    for (boolean pooled : new boolean[]{false, true}) {
+                        createSchema(connection, pooled);
+                        // Warm the connection and the server before timing
+                        insert(connection, pooled, orders / 10, items, ordersPerTransaction);
+                        long started = System.nanoTime();
+                        insert(connection, pooled, orders, items, ordersPerTransaction);
+                        double seconds = (System.nanoTime() - started) / 1e9;
+                        System.out.printf("%-14s %-20d %12.0f %14.0f%n", pooled ? "pooled+batch" : "identity",
+                                ordersPerTransaction, orders / seconds, orders * (1 + items) / seconds);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void createSchema(Connection connection, boolean pooled) throws SQLException {
+        String id = pooled ? "bigint" : "bigint GENERATED BY DEFAULT AS IDENTITY";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS order_items, orders");
+            statement.execute("DROP SEQUENCE IF EXISTS orders_id_seq, order_items_id_seq");
+            if (pooled) {
+                statement.execute("CREATE SEQUENCE orders_id_seq INCREMENT BY " + ALLOCATION_SIZE);
+                statement.execute("CREATE SEQUENCE order_items_id_seq INCREMENT BY " + ALLOCATION_SIZE);
+            }
+            statement.execute("CREATE TABLE orders (id " + id + " PRIMARY KEY, order_number varchar(255) NOT NULL UNIQUE, "
+                    + "total_amount numeric(10,2) NOT NULL, status varchar(255) NOT NULL, failure_reason varchar(1000), "
+                    + "created_at timestamp(6), updated_at timestamp(6))");
+            statement.execute("CREATE TABLE order_items (id " + id + " PRIMARY KEY, order_id bigint NOT NULL REFERENCES orders, "
+                    + "product_id bigint NOT NULL, product_name varchar(255) NOT NULL, quantity integer NOT NULL, "
+                    + "unit_price numeric(10,2) NOT NULL, total_price numeric(10,2) NOT NULL)");
+        }
+        connection.commit();
+    }
+
+    private static void insert(Connection connection, boolean pooled, int orders, int items,
+                               int ordersPerTransaction) throws SQLException {
+        String orderColumns = "order_number, total_amount, status, created_at, updated_at";
+        String itemColumns = "order_id, product_id, product_name, quantity, unit_price, total_price";
+        IdBlock orderIds = new IdBlock("orders_id_seq");
+        IdBlock itemIds = new IdBlock("order_items_id_seq");
+        try (PreparedStatement orderInsert = pooled
+                ? connection.prepareStatement("INSERT INTO orders (" + orderColumns + ", id) VALUES (?, ?, ?, ?, ?, ?)")
+                : connection.prepareStatement("INSERT INTO orders (" + orderColumns + ") VALUES (?, ?, ?, ?, ?)",
+                new String[]{"id"});
+             PreparedStatement itemInsert = pooled
+                     ? connection.prepareStatement("INSERT INTO order_items (" + itemColumns + ", id) VALUES (?, ?, ?, ?, ?, ?, ?)")
+                     : connection.prepareStatement("INSERT INTO order_items (" + itemColumns + ") VALUES (?, ?, ?, ?, ?, ?)",
+                     new String[]{"id"})) {
+            for (int order = 0; order < orders; order++) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                orderInsert.setString(1, "ORD-" + System.nanoTime() + "-" + order);
+                orderInsert.setBigDecimal(2, new BigDecimal("29.97"));
+                orderInsert.setString(3, "PENDING");
+                orderInsert.setTimestamp(4, now);
+                orderInsert.setTimestamp(5, now);
+                long orderId;
+                if (pooled) {
+                    orderId = orderIds.next(connection);
+                    orderInsert.setLong(6, orderId);
+                    orderInsert.addBatch();
+                } else {
+                    orderInsert.executeUpdate();
+                    try (ResultSet keys = orderInsert.getGeneratedKeys()) {
+                        keys.next();
+                        orderId = keys.getLong(1);
+                    }
+                }
+
+                for (int item = 0; item < items; item++) {
+                    itemInsert.setLong(1, orderId);
+                    itemInsert.setLong(2, item + 1);
+                    itemInsert.setString(3, "Product " + (item + 1));
+                    itemInsert.setInt(4, 1);
+                    itemInsert.setBigDecimal(5, new BigDecimal("9.99"));
+                    itemInsert.setBigDecimal(6, new BigDecimal("9.99"));
+                    if (pooled) {
+                        itemInsert.setLong(7, itemIds.next(connection));
+                        itemInsert.addBatch();
+                    } else {
+                        itemInsert.executeUpdate();
+                        itemInsert.getGeneratedKeys().close();
+                    }
+                }
+
+                // Hibernate flushes ordered inserts at commit: all orders first, then all items
+                if ((order + 1) % ordersPerTransaction == 0 || order == orders - 1) {
+                    if (pooled) {
+                        orderInsert.executeBatch();
+                        itemInsert.executeBatch();
+                    }
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    // The pooled optimizer: each nextval returns the top of a fresh block of ALLOCATION_SIZE ids
+    private static final class IdBlock {
+
+        private final String sequence;
+        private long next;
+        private long last = -1;
+
+        private IdBlock(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private long next(Connection connection) throws SQLException {
+            if (next > last) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rows = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+                    rows.next();
+                    last = rows.getLong(1);
+                    next = last - ALLOCATION_SIZE + 1;
+                }
+            }
+            return next++;
+        }
+    }
+}
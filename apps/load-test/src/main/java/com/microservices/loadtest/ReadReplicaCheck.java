@@ -0,0 +1,187 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Read replica routing of both services, against two embedded PostgreSQL instances that stand in for
+// the primary and its replica. They are not replicated: the replica's copy of product 1 is renamed so
+// a read shows which database answered it, and orders placed on the primary never reach the replica.
+// Checks that read-only transactions read the replica, while writes, order status polls and catalog
+// cache loads use the primary. Both pools must report metrics, and reads must fall back to the
+// primary once the replica is gone.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.ReadReplicaCheck
+@Slf4j
+public class ReadReplicaCheck {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final String REPLICA_MARKER = "Served by the replica";
+    private static final Duration ROUTING_TIMEOUT = Duration.ofSeconds(15);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Path inventoryJar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+        Path orderJar = Path.of(options.getOrDefault("order-jar", "order-service/target/order-service-1.0.0-exec.jar"));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "read-replica-check"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> failures = new ArrayList<>();
+
+        try (EmbeddedPostgres primary = EmbeddedPostgres.start();
+             EmbeddedPostgres replica = EmbeddedPostgres.start()) {
+            for (EmbeddedPostgres postgres : List.of(primary, replica)) {
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE inventory_db");
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE order_db");
+            }
+            DataSource primaryInventory = primary.getDatabase(DATABASE_USER, "inventory_db");
+            DataSource primaryOrders = primary.getDatabase(DATABASE_USER, "order_db");
+            DataSource replicaInventory = replica.getDatabase(DATABASE_USER, "inventory_db");
+
+            // The services migrate the replica's schema once, as replication would have copied it
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service-replica-schema", inventoryJar,
+                    List.of("-Xmx384m"), args(replica, "inventory_db", null, List.of()), logDirectory);
+                 ServiceProcess order = ServiceProcess.start("order-service-replica-schema", orderJar,
+                         List.of("-Xmx384m"), args(replica, "order_db", null, List.of()), logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+                order.awaitHealthy(httpClient);
+            }
+            execute(replicaInventory, "UPDATE products SET name = '" + REPLICA_MARKER + "', stock_quantity = 10 WHERE id = 1");
+
+            List<String> routed = List.of("--shop.datasource.replica.lag-check-interval-ms=200");
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service", inventoryJar,
+                    List.of("-Xmx384m"), args(primary, "inventory_db", replica, routed), logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+                execute(primaryInventory, "UPDATE products SET stock_quantity = 10 WHERE id = 1");
+                List<String> orderArgs = new ArrayList<>(routed);
+                orderArgs.add("--inventory.service.url=" + inventory.baseUrl());
+                try (ServiceProcess order = ServiceProcess.start("order-service", orderJar,
+                        List.of("-Xmx384m"), args(primary, "order_db", replica, orderArgs), logDirectory)) {
+                    order.awaitHealthy(httpClient);
+                    String product = inventory.baseUrl() + "/api/products/1";
+
+                    check(failures, awaitResponse(httpClient, product, response -> response.body().contains(REPLICA_MARKER)),
+                            "product reads are served by the replica once its lag is checked");
+                    check(failures, !get(httpClient, inventory.baseUrl() + "/api/products").body().contains(REPLICA_MARKER),
+                            "catalog pages are cached from the primary");
+
+                    HttpResponse<String> placed = httpClient.send(HttpRequest.newBuilder(URI.create(order.baseUrl() + "/api/orders"))
+                                    .header("Content-Type", "application/json")
+                                    .timeout(Duration.ofSeconds(30))
+                                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\": 1, \"quantity\": 2}"))
+                                    .build(),
+                            HttpResponse.BodyHandlers.ofString());
+                    check(failures, placed.statusCode() == 201
+                                    && queryInt(primaryInventory, "SELECT stock_quantity FROM products WHERE id = 1") == 8
+                                    && queryInt(replicaInventory, "SELECT stock_quantity FROM products WHERE id = 1") == 10,
+                            "stock is reduced on the primary only");
+
+                    long orderId = queryInt(primaryOrders, "SELECT max(id) FROM orders");
+                    check(failures, get(httpClient, order.baseUrl() + "/api/orders/" + orderId).statusCode() != 200,
+                            "order reads are served by the replica, which does not have the new order");
+                    check(failures, get(httpClient, order.baseUrl() + "/api/orders/" + orderId + "/status").statusCode() == 200,
+                            "order status polls read the primary");
+
+                    for (ServiceProcess service : List.of(inventory, order)) {
+                        String metrics = service.baseUrl() + "/actuator/metrics/";
+                        check(failures, get(httpClient, metrics + "hikaricp.connections?tag=pool:replica").statusCode() == 200
+                                        && get(httpClient, metrics + "hikaricp.connections?tag=pool:primary").statusCode() == 200,
+                                service.baseUrl() + " reports both connection pools");
+                        check(failures, get(httpClient, metrics + "shop.datasource.connections?tag=pool:replica&tag=access:read-only")
+                                        .statusCode() == 200,
+                                service.baseUrl() + " counts replica connections");
+                    }
+
+                    // Closed here rather than by try-with-resources, which then finds it closed
+                    replica.close();
+                    check(failures, awaitResponse(httpClient, product, response ->
+                                    response.statusCode() == 200 && !response.body().contains(REPLICA_MARKER)),
+                            "product reads fall back to the primary when the replica is down");
+                }
+            }
+        }
+
+        failures.forEach(failure -> log.error("FAILED {}", failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> args(EmbeddedPostgres postgres, String database, EmbeddedPostgres replica, List<String> extra) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, database),
+                "--spring.datasource.username=" + DATABASE_USER,
+                "--spring.datasource.password=",
+                "--spring.cloud.gcp.sql.enabled=false",
+                "--management.endpoint.health.probes.enabled=true"));
+        if (replica != null) {
+            args.add("--shop.datasource.replica.enabled=true");
+            args.add("--shop.datasource.replica.url=" + replica.getJdbcUrl(DATABASE_USER, database));
+        }
+        args.addAll(extra);
+        return args;
+    }
+
+    private static boolean awaitResponse(HttpClient httpClient, String url, Predicate<HttpResponse<String>> expected)
+            throws Exception {
+        long deadline = System.nanoTime() + ROUTING_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (expected.test(get(httpClient, url))) {
+                return true;
+            }
+            Thread.sleep(200);
+        }
+        return false;
+    }
+
+    private static HttpResponse<String> get(HttpClient httpClient, String url) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void check(List<String> failures, boolean passed, String expectation) {
+        if (passed) {
+            log.info("OK {}", expectation);
+        } else {
+            failures.add(expectation);
+        }
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int queryInt(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservices.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+// Plain-text summary of one run
+public final class Report {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private Report() {
+    }
+
+    public static void print(PrintStream out, LoadTestConfig config, OpenModelDriver.Results results,
+                             LockWaitSampler lockWaits, StockAudit.Result audit) {
+        out.println();
+        out.printf("Order stack      %s%n", config.orderStack().equals("webflux")
+                ? "order-service-reactive (WebFlux, R2DBC)" : "order-service (MVC, JDBC)");
+        out.printf("Offered load     %.0f requests/s for %s, read ratio %.2f, %d of %d products hot taking %.0f%% of picks%n",
+                config.rate(), config.duration(), config.readRatio(), config.hotProducts(), config.products(),
+                config.hotShare() * 100);
+        out.printf("Throughput       %.1f requests/s completed, %d dropped at the in-flight limit%n",
+                results.throughput(), results.dropped.sum());
+        out.printf("Reads            %d, %d not OK%n", results.reads.sum(), results.readErrors.sum());
+        out.printf("Orders           %d confirmed, %d rejected, %d failed%n",
+                results.ordersConfirmed.sum(), results.ordersRejected.sum(), results.ordersFailed.sum());
+
+        out.println();
+        out.printf("Latency (ms)     %9s %9s %9s %9s %9s%n", "p50", "p90", "p99", "p99.9", "max");
+        printLatency(out, "reads", results.readLatency);
+        printLatency(out, "orders", results.orderLatency);
+
+        out.println();
+        Map<String, Double> waitMillis = lockWaits.waitMillis();
+        Map<String, Integer> peakWaiting = lockWaits.peakWaiting();
+        if (waitMillis.isEmpty()) {
+            out.println("Lock wait        none observed");
+        }
+        waitMillis.forEach((database, millis) -> out.printf("Lock wait        %s: %.0f ms across backends, peak %d waiting%n",
+                database, millis, peakWaiting.get(database)));
+
+        out.println();
+        out.printf("Stock audit      %s, %d units in confirmed orders%n",
+                audit.passed() ? "PASSED" : "FAILED", audit.unitsSold());
+        printFindings(out, "over-sold", audit.overSold());
+        printFindings(out, "drift", audit.drift());
+    }
+
+    private static void printLatency(PrintStream out, String label, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            out.printf("  %-14s no samples%n", label);
+            return;
+        }
+        out.printf("  %-14s", label);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.1f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf(" %9.1f%n", histogram.getMaxValue() / 1000.0);
+    }
+
+    private static void printFindings(PrintStream out, String label, List<String> findings) {
+        findings.stream().limit(20).forEach(finding -> out.printf("  %-14s %s%n", label, finding));
+        if (findings.size() > 20) {
+            out.printf("  %-14s ... and %d more%n", label, findings.size() - 20);
+        }
+    }
+}
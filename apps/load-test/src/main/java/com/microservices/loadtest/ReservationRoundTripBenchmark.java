@@ -0,0 +1,141 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Inventory latency of an order line before and after the product pre-check was dropped. The two-call
+// path is what OrderService used to send: GET the product, then reduce its stock. The one-call path
+// reduces the stock and takes the product snapshot from the response. Calls run one after another
+// against inventory-service on an embedded PostgreSQL, alternating between the paths so both see the
+// same warm-up and database state.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.ReservationRoundTripBenchmark --orders=5000
+@Slf4j
+public class ReservationRoundTripBenchmark {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final String DATABASE = "inventory_db";
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int orders = Integer.parseInt(options.getOrDefault("orders", "5000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "1000"));
+        int products = Integer.parseInt(options.getOrDefault("products", "100"));
+        Path jar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "round-trip-benchmark"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Histogram twoCalls = new Histogram(TimeUnit.SECONDS.toMicros(10), 3);
+        Histogram oneCall = new Histogram(TimeUnit.SECONDS.toMicros(10), 3);
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE DATABASE " + DATABASE);
+            }
+            List<String> serviceArgs = List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, DATABASE),
+                    "--spring.datasource.username=" + DATABASE_USER,
+                    "--spring.datasource.password=",
+                    "--spring.cloud.gcp.sql.enabled=false",
+                    // Healthy only once ready, so the sample catalog is in before the stock is set below
+                    "--management.endpoint.health.probes.enabled=true");
+            try (ServiceProcess inventory = ServiceProcess.start("inventory-service", jar, List.of("-Xmx512m"),
+                    serviceArgs, logDirectory)) {
+                inventory.awaitHealthy(httpClient);
+                // Enough stock that no call is refused, so both paths do the same work every time
+                try (Connection connection = postgres.getDatabase(DATABASE_USER, DATABASE).getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("INSERT INTO products (name, description, price, stock_quantity) "
+                            + "SELECT 'Product ' || n, 'Round-trip benchmark product', 9.99, 0 "
+                            + "FROM generate_series(1, " + products + ") n");
+                    statement.execute("UPDATE products SET stock_quantity = " + 2 * (orders + warmup));
+                }
+
+                log.info("Warming up with {} orders on each path", warmup);
+                for (int order = 0; order < warmup + orders; order++) {
+                    long productId = 1 + order % products;
+                    boolean measured = order >= warmup;
+                    // Alternate which path goes first, so neither always follows the other
+                    if (order % 2 == 0) {
+                        time(twoCalls, measured, () -> twoCalls(httpClient, inventory.baseUrl(), productId));
+                        time(oneCall, measured, () -> oneCall(httpClient, inventory.baseUrl(), productId));
+                    } else {
+                        time(oneCall, measured, () -> oneCall(httpClient, inventory.baseUrl(), productId));
+                        time(twoCalls, measured, () -> twoCalls(httpClient, inventory.baseUrl(), productId));
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-28s %9s %9s %9s %9s %9s%n", "inventory latency (ms)", "mean", "p50", "p90", "p99", "max");
+        print("get product + reduce stock", twoCalls);
+        print("reduce stock with snapshot", oneCall);
+        System.out.printf("%-28s %9.2f %9.2f%n", "saved per order line",
+                (twoCalls.getMean() - oneCall.getMean()) / 1000.0,
+                (twoCalls.getValueAtPercentile(50) - oneCall.getValueAtPercentile(50)) / 1000.0);
+    }
+
+    private interface Call {
+        void run() throws IOException, InterruptedException;
+    }
+
+    private static void time(Histogram histogram, boolean measured, Call call) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        call.run();
+        if (measured) {
+            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+        }
+    }
+
+    private static void twoCalls(HttpClient httpClient, String baseUrl, long productId) throws IOException, InterruptedException {
+        send(httpClient, HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + productId)).build());
+        oneCall(httpClient, baseUrl, productId);
+    }
+
+    private static void oneCall(HttpClient httpClient, String baseUrl, long productId) throws IOException, InterruptedException {
+        send(httpClient, HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/reduce-stock"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"productId\": " + productId + ", \"quantity\": 1}"))
+                .build());
+    }
+
+    private static void send(HttpClient httpClient, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode());
+        }
+    }
+
+    private static void print(String label, Histogram histogram) {
+        System.out.printf("%-28s %9.2f", label, histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf(" %9.2f%n", histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.microservices.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One service running from its executable jar in a child JVM, as it would in its container.
+// Output goes to a log file next to the report.
+@Slf4j
+public class ServiceProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final String name;
+    private final int port;
+    private final Process process;
+    private final Path logFile;
+
+    private ServiceProcess(String name, int port, Process process, Path logFile) {
+        this.name = name;
+        this.port = port;
+        this.process = process;
+        this.logFile = logFile;
+    }
+
+    public static ServiceProcess start(String name, Path jar, List<String> jvmOptions, List<String> args,
+                                       Path logDirectory) throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Service jar not found: " + jar.toAbsolutePath());
+        }
+        int port = freePort();
+        Path logFile = logDirectory.resolve(name + ".log");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--server.port=" + port);
+        command.addAll(args);
+
+        log.info("Starting {} on port {}, logging to {}", name, port, logFile);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        return new ServiceProcess(name, port, process, logFile);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public void awaitHealthy(HttpClient httpClient) throws InterruptedException {
+        awaitHealthy(httpClient, Duration.ofMillis(500));
+    }
+
+    // Returns as soon as a poll sees the service healthy, so a short interval times startup closely
+    public void awaitHealthy(HttpClient httpClient, Duration pollInterval) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl() + "/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited during startup, see " + logFile);
+            }
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    log.info("{} is up", name);
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+        throw new IllegalStateException(name + " did not become healthy within " + STARTUP_TIMEOUT + ", see " + logFile);
+    }
+
+    // For a run that stops by itself, such as a class data sharing training run
+    public int awaitExit() throws InterruptedException {
+        if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            throw new IllegalStateException(name + " did not exit within " + STARTUP_TIMEOUT + ", see " + logFile);
+        }
+        return process.exitValue();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
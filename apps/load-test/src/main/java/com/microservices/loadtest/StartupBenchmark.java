@@ -0,0 +1,146 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Startup time and first-request latency of both services, with and without their class data sharing
+// archive. The services run from the target/cds layout that the cds profile builds. Each one is first
+// started once to record its archive, which also migrates its database, so the measured starts do the
+// same work as a pod joining a running deployment. Plain and archived starts alternate.
+// Startup is the time from launching the JVM to the first healthy response, polled every 10ms.
+// The first request is the readiness probe path of the Kubernetes deployment.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.StartupBenchmark --runs=5 --max-startup=15s
+@Slf4j
+public class StartupBenchmark {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private record Service(String name, Path jar, String database, String firstRequest) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        List<String> jvmOptions = Arrays.asList(options.getOrDefault("jvm-options", "-Xmx384m").split(" "));
+        // Fails the run when the median archived startup of a service is slower
+        Duration maxStartup = options.containsKey("max-startup")
+                ? Duration.parse("PT" + options.get("max-startup").toUpperCase()) : null;
+        List<Service> services = List.of(
+                new Service("inventory-service",
+                        Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/cds/inventory-service-1.0.0-cds.jar")),
+                        "inventory_db", "/api/products"),
+                new Service("order-service",
+                        Path.of(options.getOrDefault("order-jar", "order-service/target/cds/order-service-1.0.0-cds.jar")),
+                        "order_db", "/api/orders?limit=1"));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "startup-benchmark"));
+        Path results = logDirectory.resolve("startup-result.csv");
+        Files.writeString(results, "service,mode,run,startup_ms,first_request_ms\n");
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> failures = new ArrayList<>();
+
+        System.out.println();
+        System.out.printf("%-18s %-6s %12s %12s %18s%n", "service", "mode", "startup p50", "startup max", "first request p50");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            for (Service service : services) {
+                try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE DATABASE " + service.database());
+                }
+                List<String> serviceArgs = List.of(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, service.database()),
+                        "--spring.datasource.username=" + DATABASE_USER,
+                        "--spring.datasource.password=",
+                        "--spring.cloud.gcp.sql.enabled=false",
+                        "--management.endpoint.health.probes.enabled=true",
+                        // Never called; the order endpoints timed here only read order_db
+                        "--inventory.service.url=http://localhost:1");
+
+                Path archive = logDirectory.resolve(service.name() + ".jsa").toAbsolutePath();
+                List<String> training = new ArrayList<>(jvmOptions);
+                training.add("-XX:ArchiveClassesAtExit=" + archive);
+                training.add("-Dspring.context.exit=onRefresh");
+                try (ServiceProcess trainingRun = ServiceProcess.start(service.name() + "-training", service.jar(),
+                        training, serviceArgs, logDirectory)) {
+                    if (trainingRun.awaitExit() != 0 || !Files.isRegularFile(archive)) {
+                        throw new IllegalStateException("Recording the archive of " + service.name() + " failed");
+                    }
+                }
+                List<String> archived = new ArrayList<>(jvmOptions);
+                archived.add("-XX:SharedArchiveFile=" + archive);
+
+                long[][] startup = new long[2][runs];
+                long[][] firstRequest = new long[2][runs];
+                for (int run = 0; run < runs; run++) {
+                    for (int mode = 0; mode < 2; mode++) {
+                        String label = mode == 0 ? "plain" : "cds";
+                        long started = System.nanoTime();
+                        try (ServiceProcess process = ServiceProcess.start(service.name() + "-" + label, service.jar(),
+                                mode == 0 ? jvmOptions : archived, serviceArgs, logDirectory)) {
+                            process.awaitHealthy(httpClient, POLL_INTERVAL);
+                            startup[mode][run] = Duration.ofNanos(System.nanoTime() - started).toMillis();
+                            long requested = System.nanoTime();
+                            get(httpClient, process.baseUrl() + service.firstRequest());
+                            firstRequest[mode][run] = Duration.ofNanos(System.nanoTime() - requested).toMillis();
+                        }
+                        Files.writeString(results, String.format("%s,%s,%d,%d,%d%n", service.name(), label, run,
+                                startup[mode][run], firstRequest[mode][run]), StandardOpenOption.APPEND);
+                    }
+                }
+
+                for (int mode = 0; mode < 2; mode++) {
+                    System.out.printf("%-18s %-6s %10d ms %10d ms %15d ms%n", service.name(), mode == 0 ? "plain" : "cds",
+                            median(startup[mode]), Arrays.stream(startup[mode]).max().orElse(0), median(firstRequest[mode]));
+                }
+                if (maxStartup != null && median(startup[1]) > maxStartup.toMillis()) {
+                    failures.add(service.name() + " starts in " + median(startup[1]) + " ms with its archive, over "
+                            + maxStartup.toMillis() + " ms");
+                }
+            }
+        }
+
+        log.info("Results written to {}", results);
+        failures.forEach(failure -> log.error("FAILED {}", failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static void get(HttpClient httpClient, String url) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + " answered " + response.statusCode());
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
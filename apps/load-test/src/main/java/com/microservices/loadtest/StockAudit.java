@@ -0,0 +1,153 @@
+package com.microservices.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Seeds the catalog before the run and checks afterwards that stock was neither over-sold nor
+// leaked: for every product, the stock that left inventory must equal the units in confirmed orders.
+@Slf4j
+public class StockAudit {
+
+    private static final long SETTLE_POLL_MILLIS = 1000;
+
+    private final DataSource inventoryDataSource;
+    private final DataSource orderDataSource;
+    private final Map<Long, Integer> initialStock = new TreeMap<>();
+
+    public StockAudit(DataSource inventoryDataSource, DataSource orderDataSource) {
+        this.inventoryDataSource = inventoryDataSource;
+        this.orderDataSource = orderDataSource;
+    }
+
+    // Tops the sample catalog up to the requested size and gives every product the same stock.
+    // Leftover shards are dropped, so sharded products are split again from the product row.
+    public List<Long> prepare(int products, int stock) throws SQLException {
+        try (Connection connection = inventoryDataSource.getConnection()) {
+            int existing;
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT count(*) FROM products")) {
+                rows.next();
+                existing = rows.getInt(1);
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO products (name, description, price, stock_quantity, created_at, updated_at) " +
+                            "VALUES (?, 'Load test product', 9.99, 0, now(), now())")) {
+                for (int i = existing; i < products; i++) {
+                    insert.setString(1, "Load Test Product " + (i + 1));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement update = connection.prepareStatement("UPDATE products SET stock_quantity = ?");
+                 Statement statement = connection.createStatement()) {
+                update.setInt(1, stock);
+                update.executeUpdate();
+                statement.executeUpdate("DELETE FROM stock_shards");
+            }
+
+            List<Long> productIds = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT id FROM products ORDER BY id LIMIT ?")) {
+                select.setInt(1, products);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        productIds.add(rows.getLong(1));
+                        initialStock.put(rows.getLong(1), stock);
+                    }
+                }
+            }
+            log.info("Catalog ready: {} products with {} units each", productIds.size(), stock);
+            return productIds;
+        }
+    }
+
+    // Waits for sagas that are still reserving or compensating, so that stock they hold is not
+    // counted as leaked. The pause before the first look lets ledger flushes catch up.
+    public void awaitSettled(Duration timeout) throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Thread.sleep(SETTLE_POLL_MILLIS);
+        try (Connection connection = orderDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            while (true) {
+                int open;
+                try (ResultSet rows = statement.executeQuery(
+                        "SELECT count(*) FROM order_sagas WHERE status IN ('STARTED', 'COMPENSATING')")) {
+                    rows.next();
+                    open = rows.getInt(1);
+                }
+                if (open == 0) {
+                    return;
+                }
+                if (System.nanoTime() >= deadline) {
+                    log.warn("{} sagas still open after {}", open, timeout);
+                    return;
+                }
+                log.info("Waiting for {} open sagas to settle", open);
+                Thread.sleep(SETTLE_POLL_MILLIS);
+            }
+        }
+    }
+
+    public Result check() throws SQLException {
+        Map<Long, Integer> finalStock = new HashMap<>();
+        try (Connection connection = inventoryDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT p.id, p.stock_quantity + coalesce(sum(s.quantity), 0) FROM products p " +
+                             "LEFT JOIN stock_shards s ON s.product_id = p.id GROUP BY p.id, p.stock_quantity")) {
+            while (rows.next()) {
+                finalStock.put(rows.getLong(1), rows.getInt(2));
+            }
+        }
+
+        Map<Long, Long> sold = new HashMap<>();
+        try (Connection connection = orderDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT oi.product_id, sum(oi.quantity) FROM order_items oi " +
+                             "JOIN orders o ON o.id = oi.order_id WHERE o.status = 'CONFIRMED' " +
+                             "GROUP BY oi.product_id")) {
+            while (rows.next()) {
+                sold.put(rows.getLong(1), rows.getLong(2));
+            }
+        }
+
+        List<String> overSold = new ArrayList<>();
+        List<String> drift = new ArrayList<>();
+        long unitsSold = 0;
+        for (Map.Entry<Long, Integer> product : initialStock.entrySet()) {
+            long initial = product.getValue();
+            long remaining = finalStock.getOrDefault(product.getKey(), 0);
+            long confirmed = sold.getOrDefault(product.getKey(), 0L);
+            unitsSold += confirmed;
+            if (remaining < 0 || confirmed > initial) {
+                overSold.add("product " + product.getKey() + ": " + confirmed + " sold of " + initial
+                        + ", " + remaining + " left");
+            }
+            if (initial - remaining != confirmed) {
+                drift.add("product " + product.getKey() + ": " + (initial - remaining) + " left inventory, "
+                        + confirmed + " in confirmed orders");
+            }
+        }
+        return new Result(unitsSold, overSold, drift);
+    }
+
+    public record Result(long unitsSold, List<String> overSold, List<String> drift) {
+
+        public boolean passed() {
+            return overSold.isEmpty() && drift.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.microservices.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reservation semantics of every stock strategy: plain row locks, the combiner, the ledger and
+// the shards. Each gets its own database and inventory-service and the same three scenarios,
+// each on its own product with 5 units:
+// - 2, 4 and 3 units in arrival order: the middle request is refused, the ones around it succeed;
+// - the same reference twice: the second request is replayed and the stock is taken once, and so
+//   is the reference sent again later;
+// - a reference that was released before it arrived: only that request is refused.
+// The requests of a scenario are sent 250ms apart after a warm-up, so they arrive in order. The
+// combiner runs with a long window and a batch size of 3, so each scenario must be applied as one
+// batch, less the released reference, which the combiner refuses before batching; the other strategies handle the requests one after another. The ledger also has its lock
+// session killed while reservations are in flight, and must take exactly the stock it acknowledged.
+//
+//   java -cp load-test/target/load-test.jar com.microservices.loadtest.StockReservationCheck
+@Slf4j
+public class StockReservationCheck {
+
+    private static final String DATABASE_USER = "postgres";
+    private static final int INITIAL_STOCK = 5;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final Duration SPACING = Duration.ofMillis(250);
+    private static final Duration SETTLE_TIMEOUT = Duration.ofSeconds(10);
+    private static final int LOCK_LOSS_REQUESTS = 90;
+    private static final Pattern STATISTIC = Pattern.compile("\"statistic\"\\s*:\\s*\"(\\w+)\"\\s*,\\s*\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+
+    private record Configuration(String name, List<String> args) {
+    }
+
+    private record Reduction(int quantity, String reference) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        Path jar = Path.of(options.getOrDefault("inventory-jar", "inventory-service/target/inventory-service-1.0.0-exec.jar"));
+        List<Configuration> configurations = List.of(
+                new Configuration("pessimistic", List.of()),
+                new Configuration("combiner", List.of("--inventory.stock.combiner.enabled=true",
+                        "--inventory.stock.combiner.window=2s",
+                        "--inventory.stock.combiner.max-batch-size=3")),
+                new Configuration("ledger", List.of("--inventory.stock.ledger.enabled=true",
+                        "--inventory.stock.ledger.flush-interval-ms=200")),
+                new Configuration("shards", List.of("--inventory.stock.shards.enabled=true",
+                        "--inventory.stock.shards.product-ids=1,2,3",
+                        "--inventory.stock.shards.count=2")));
+
+        Path logDirectory = Files.createDirectories(Path.of("target", "stock-reservation-check"));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> failures = new ArrayList<>();
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            for (int i = 0; i < configurations.size(); i++) {
+                Configuration configuration = configurations.get(i);
+                String database = "stock_check_" + i;
+                execute(postgres.getPostgresDatabase(), "CREATE DATABASE " + database);
+                DataSource dataSource = postgres.getDatabase(DATABASE_USER, database);
+                List<String> serviceArgs = new ArrayList<>();
+                serviceArgs.add("--spring.datasource.url=" + postgres.getJdbcUrl(DATABASE_USER, database));
+                serviceArgs.add("--spring.datasource.username=" + DATABASE_USER);
+                serviceArgs.add("--spring.datasource.password=");
+                serviceArgs.add("--spring.cloud.gcp.sql.enabled=false");
+                // Reports ready only once the sample products are seeded
+                serviceArgs.add("--management.endpoint.health.probes.enabled=true");
+                serviceArgs.addAll(configuration.args());
+                String name = "inventory-service-" + configuration.name();
+
+                // The first start creates the schema and seeds the sample products, whose stock is then
+                // set for the scenarios. The ledger and the shards read stock at startup, so the service
+                // is restarted.
+                try (ServiceProcess inventory = ServiceProcess.start(name, jar, List.of("-Xmx384m"), serviceArgs,
+                        logDirectory)) {
+                    inventory.awaitHealthy(httpClient);
+                    execute(dataSource, "UPDATE products SET stock_quantity = " + INITIAL_STOCK + " WHERE id IN (1, 2, 3)");
+                    // Takes the warm-up reductions
+                    execute(dataSource, "UPDATE products SET stock_quantity = 1000 WHERE id = 4");
+                    // The shards already took the sample stock; the restart splits the new stock instead
+                    execute(dataSource, "DELETE FROM stock_shards");
+                }
+                try (ServiceProcess inventory = ServiceProcess.start(name, jar, List.of("-Xmx384m"), serviceArgs,
+                        logDirectory)) {
+                    inventory.awaitHealthy(httpClient);
+                    log.info("Checking {}", configuration.name());
+                    boolean combined = configuration.name().equals("combiner");
+                    Checker checker = new Checker(configuration.name(), httpClient, inventory.baseUrl(), dataSource,
+                            combined, failures);
+                    checker.warmUp(4);
+
+                    checker.scenario("the middle request is refused when it no longer fits", 1,
+                            List.of(new Reduction(2, null), new Reduction(4, null), new Reduction(3, null)),
+                            List.of(200, 400, 200), 0, 3);
+
+                    checker.scenario("a duplicate reference is replayed and takes stock once", 2,
+                            List.of(new Reduction(2, "duplicate"), new Reduction(2, "duplicate"), new Reduction(1, null)),
+                            List.of(200, 200, 200), 2, 3);
+                    check(failures, reservations(dataSource, "duplicate") == 1,
+                            configuration.name() + ": the duplicate reference is journaled once");
+                    checker.scenario("a later replay of the reference takes no stock", 2,
+                            List.of(new Reduction(2, "duplicate")), List.of(200), 2, 0);
+
+                    release(httpClient, inventory.baseUrl(), "released", 3);
+                    checker.scenario("a released reference is refused without affecting the others", 3,
+                            List.of(new Reduction(1, "before-released"), new Reduction(2, "released"),
+                                    new Reduction(1, "after-released")),
+                            List.of(200, 409, 200), 3, 2);
+                    check(failures, queryInt(dataSource, "SELECT count(*) FROM stock_reservations WHERE reference IS NULL") == 0,
+                            configuration.name() + ": nothing is journaled for applied reductions without a reference");
+
+                    if (configuration.name().equals("ledger")) {
+                        checker.lockLoss("reservations racing the loss of the ledger lock take stock exactly once", 4);
+                    }
+                }
+            }
+        }
+
+        failures.forEach(failure -> log.error("FAILED {}", failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static final class Checker {
+
+        private final String configuration;
+        private final HttpClient httpClient;
+        private final String baseUrl;
+        private final DataSource dataSource;
+        private final boolean combined;
+        private final List<String> failures;
+
+        private Checker(String configuration, HttpClient httpClient, String baseUrl, DataSource dataSource,
+                        boolean combined, List<String> failures) {
+            this.configuration = configuration;
+            this.httpClient = httpClient;
+            this.baseUrl = baseUrl;
+            this.dataSource = dataSource;
+            this.combined = combined;
+            this.failures = failures;
+        }
+
+        // A cold first request can be overtaken by the next one. Rounds of three fill a combiner batch.
+        private void warmUp(long productId) {
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    responses.add(httpClient.sendAsync(reduceStock(productId, new Reduction(1, null)),
+                            HttpResponse.BodyHandlers.discarding()));
+                }
+                responses.forEach(CompletableFuture::join);
+            }
+        }
+
+        private void scenario(String expectation, long productId, List<Reduction> reductions,
+                              List<Integer> expectedStatuses, int expectedStock, int expectedBatched) throws Exception {
+            Map<String, Double> batchesBefore = combined ? batchSizes() : Map.of();
+
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (Reduction reduction : reductions) {
+                responses.add(httpClient.sendAsync(reduceStock(productId, reduction), HttpResponse.BodyHandlers.ofString()));
+                Thread.sleep(SPACING.toMillis());
+            }
+            List<Integer> statuses = new ArrayList<>();
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                statuses.add(response.join().statusCode());
+            }
+
+            check(failures, statuses.equals(expectedStatuses),
+                    configuration + ": " + expectation + " (statuses " + statuses + ", expected " + expectedStatuses + ")");
+            int stock = awaitStock(productId, expectedStock);
+            check(failures, stock == expectedStock,
+                    configuration + ": " + expectation + " (stock " + stock + ", expected " + expectedStock + ")");
+            if (combined) {
+                Map<String, Double> batchesAfter = batchSizes();
+                check(failures, batchesAfter.get("COUNT") - batchesBefore.get("COUNT") == (expectedBatched > 0 ? 1 : 0)
+                                && batchesAfter.get("TOTAL") - batchesBefore.get("TOTAL") == expectedBatched,
+                        configuration + ": " + expectation + " (" + expectedBatched + " applied in one batch)");
+            }
+        }
+
+        private void lockLoss(String expectation, long productId) throws Exception {
+            int before = settledStock(productId);
+            List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+            for (int i = 0; i < LOCK_LOSS_REQUESTS; i++) {
+                if (i == LOCK_LOSS_REQUESTS / 3) {
+                    execute(dataSource, "SELECT pg_terminate_backend(pid) FROM pg_locks WHERE locktype = 'advisory' AND granted");
+                }
+                responses.add(httpClient.sendAsync(reduceStock(productId, new Reduction(1, null)),
+                        HttpResponse.BodyHandlers.discarding()));
+                Thread.sleep(5);
+            }
+            int reserved = 0;
+            for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                reserved += response.join().statusCode() == 200 ? 1 : 0;
+            }
+            int stock = awaitStock(productId, before - reserved);
+            check(failures, stock == before - reserved, configuration + ": " + expectation
+                    + " (stock " + stock + ", expected " + (before - reserved) + " after " + reserved + " reservations)");
+        }
+
+        // Stock once the ledger has flushed everything it admitted so far
+        private int settledStock(long productId) throws Exception {
+            int stock = stock(dataSource, productId);
+            for (int unchanged = 0; unchanged < 5; ) {
+                Thread.sleep(200);
+                int current = stock(dataSource, productId);
+                unchanged = current == stock ? unchanged + 1 : 0;
+                stock = current;
+            }
+            return stock;
+        }
+
+        private HttpRequest reduceStock(long productId, Reduction reduction) {
+            String reference = reduction.reference() == null ? "" : ", \"reference\": \"" + reduction.reference() + "\"";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/reduce-stock"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(10))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"productId\": " + productId + ", \"quantity\": " + reduction.quantity() + reference + "}"))
+                    .build();
+        }
+
+        // The ledger writes stock back on its flush interval
+        private int awaitStock(long productId, int expected) throws Exception {
+            long deadline = System.nanoTime() + SETTLE_TIMEOUT.toNanos();
+            int stock = stock(dataSource, productId);
+            while (stock != expected && System.nanoTime() < deadline) {
+                Thread.sleep(200);
+                stock = stock(dataSource, productId);
+            }
+            return stock;
+        }
+
+        private Map<String, Double> batchSizes() throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/inventory.stock.combiner.batch.size"))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+            String body = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            Map<String, Double> statistics = new HashMap<>(Map.of("COUNT", 0.0, "TOTAL", 0.0));
+            Matcher matcher = STATISTIC.matcher(body);
+            while (matcher.find()) {
+                statistics.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+            }
+            return statistics;
+        }
+    }
+
+    // Releasing a reference that never reserved leaves a tombstone for it
+    private static void release(HttpClient httpClient, String baseUrl, String reference, long productId)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/release-stock"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"reference\": \"" + reference + "\", \"items\": "
+                        + "[{\"productId\": " + productId + ", \"quantity\": 2}]}"))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("release-stock returned " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    // Sharded products keep their stock in the shard rows
+    private static int stock(DataSource dataSource, long productId) throws SQLException {
+        return queryInt(dataSource, "SELECT p.stock_quantity + coalesce((SELECT sum(s.quantity) FROM stock_shards s "
+                + "WHERE s.product_id = p.id), 0) FROM products p WHERE p.id = " + productId);
+    }
+
+    private static int reservations(DataSource dataSource, String reference) throws SQLException {
+        return queryInt(dataSource, "SELECT count(*) FROM stock_reservations WHERE reference = '" + reference + "'");
+    }
+
+    private static void check(List<String> failures, boolean passed, String expectation) {
+        if (passed) {
+            log.info("OK {}", expectation);
+        } else {
+            failures.add(expectation);
+        }
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int queryInt(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.microservices.loadtest;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Decides what each arrival does. All choices come from one seeded Random, so a given seed
+// replays the same request sequence.
+public class Workload {
+
+    private final Random random;
+    private final double readRatio;
+    private final List<Long> productIds;
+    private final List<Long> hotProductIds;
+    private final List<Long> otherProductIds;
+    private final double hotShare;
+    private final int[] cartSizes;
+    private final int[] cartWeights;
+    private final int totalCartWeight;
+
+    public Workload(LoadTestConfig config, List<Long> productIds) {
+        this.random = new Random(config.seed());
+        this.readRatio = config.readRatio();
+        this.productIds = productIds;
+        this.hotProductIds = productIds.subList(0, config.hotProducts());
+        this.otherProductIds = productIds.subList(config.hotProducts(), productIds.size());
+        this.hotShare = otherProductIds.isEmpty() ? 1.0 : hotProductIds.isEmpty() ? 0.0 : config.hotShare();
+        this.cartSizes = config.cartSizes().keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.cartWeights = config.cartSizes().values().stream().mapToInt(Integer::intValue).toArray();
+        this.totalCartWeight = config.cartSizes().values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // Exponentially distributed gaps give Poisson arrivals at the target rate
+    public long nextGapNanos(double ratePerSecond) {
+        return (long) (-Math.log(1.0 - random.nextDouble()) / ratePerSecond * 1_000_000_000L);
+    }
+
+    public boolean nextIsRead() {
+        return random.nextDouble() < readRatio;
+    }
+
+    public long nextProductId() {
+        List<Long> pool = random.nextDouble() < hotShare ? hotProductIds : otherProductIds;
+        return pool.get(random.nextInt(pool.size()));
+    }
+
+    // A cart holds distinct products, one unit each. When the skew keeps repeating the same
+    // products, the rest of the cart is filled uniformly.
+    public Set<Long> nextCart() {
+        int size = nextCartSize();
+        Set<Long> cart = new LinkedHashSet<>();
+        for (int attempt = 0; cart.size() < size && attempt < size * 10; attempt++) {
+            cart.add(nextProductId());
+        }
+        while (cart.size() < size) {
+            cart.add(productIds.get(random.nextInt(productIds.size())));
+        }
+        return cart;
+    }
+
+    public static String cartBody(Set<Long> cart) {
+        return cart.stream()
+                .map(productId -> "{\"productId\":" + productId + ",\"quantity\":1}")
+                .collect(Collectors.joining(",", "{\"items\":[", "]}"));
+    }
+
+    private int nextCartSize() {
+        int pick = random.nextInt(totalCartWeight);
+        for (int i = 0; i < cartSizes.length; i++) {
+            pick -= cartWeights[i];
+            if (pick < 0) {
+                return cartSizes[i];
+            }
+        }
+        return cartSizes[cartSizes.length - 1];
+    }
+}
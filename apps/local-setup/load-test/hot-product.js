@@ -0,0 +1,27 @@
+// Flash-sale test: every request reserves one unit of the same product directly on inventory.
+// Run it once per shard count to see how reservation throughput scales, for example with
+//   INVENTORY_STOCK_SHARDS_ENABLED=true INVENTORY_STOCK_SHARDS_PRODUCT_IDS=1 INVENTORY_STOCK_SHARDS_COUNT=16
+// Give the product enough stock for the whole run before starting inventory-service.
+// HotProductBenchmark in the load-test module runs the same scenario without Docker.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const INVENTORY_URL = __ENV.INVENTORY_URL || 'http://inventory-service:8080';
+const HOT_PRODUCT = Number(__ENV.HOT_PRODUCT || 1);
+
+export const options = {
+    scenarios: {
+        flash_sale: {
+            executor: 'constant-vus',
+            vus: Number(__ENV.VUS || 200),
+            duration: __ENV.DURATION || '1m',
+        },
+    },
+};
+
+export default function () {
+    const res = http.post(`${INVENTORY_URL}/api/products/reduce-stock`,
+        JSON.stringify({ productId: HOT_PRODUCT, quantity: 1 }),
+        { headers: { 'Content-Type': 'application/json' }, tags: { name: 'reduce-stock' } });
+    check(res, { 'reserved': (r) => r.status === 200 });
+}
@@ -0,0 +1,31 @@
+// Concurrency test for the order path: a fixed number of virtual users, each placing orders
+// back to back, so the number of in-flight orders stays at VUS. Point ORDER_URL at
+// order-service or order-service-reactive to compare the blocking and non-blocking stacks.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const ORDER_URL = __ENV.ORDER_URL || 'http://order-service:8080';
+
+export const options = {
+    scenarios: {
+        in_flight: {
+            executor: 'constant-vus',
+            vus: Number(__ENV.VUS || 2000),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+export default function () {
+    const productId = 1 + Math.floor(Math.random() * 6);
+    const order = http.post(`${ORDER_URL}/api/orders`, JSON.stringify({ productId, quantity: 1 }), {
+        headers: { 'Content-Type': 'application/json' },
+        tags: { name: 'create-order' },
+        timeout: '30s',
+    });
+    // Running out of stock is expected once the seeded quantity is used up
+    check(order, { 'order answered': (r) => [201, 400].includes(r.status) });
+}
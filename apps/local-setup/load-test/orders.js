@@ -0,0 +1,41 @@
+// Order placement load test, run through compose.loadtest.yaml.
+// Holds a constant arrival rate so that a slower service shows up as latency and dropped
+// iterations rather than as a lower request rate.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const ORDER_URL = __ENV.ORDER_URL || 'http://order-service:8080';
+const INVENTORY_URL = __ENV.INVENTORY_URL || 'http://inventory-service:8080';
+
+export const options = {
+    scenarios: {
+        orders: {
+            executor: 'constant-arrival-rate',
+            rate: Number(__ENV.RATE || 50),
+            timeUnit: '1s',
+            duration: __ENV.DURATION || '2m',
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{name:create-order}': ['p(95)<500'],
+    },
+};
+
+export default function () {
+    const productId = 1 + Math.floor(Math.random() * 6);
+    const products = http.get(`${INVENTORY_URL}/api/products/${productId}`, { tags: { name: 'get-product' } });
+    check(products, { 'product found': (r) => r.status === 200 });
+
+    const order = http.post(`${ORDER_URL}/api/orders`, JSON.stringify({ productId, quantity: 1 }), {
+        headers: {
+            'Content-Type': 'application/json',
+            'Idempotency-Key': `${__VU}-${__ITER}-${Date.now()}`,
+        },
+        tags: { name: 'create-order' },
+    });
+    // Running out of stock is expected once the seeded quantity is used up
+    check(order, { 'order accepted': (r) => [201, 202, 400].includes(r.status) });
+}
@@ -0,0 +1,23 @@
+package com.microservices.order.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderRequest {
+
+    @NotEmpty(message = "At least one order is required")
+    @Size(max = 500, message = "At most 500 orders per request")
+    @Valid
+    private List<CartOrderRequest> orders;
+}
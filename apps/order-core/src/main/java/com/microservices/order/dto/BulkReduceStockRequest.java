@@ -0,0 +1,17 @@
+package com.microservices.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkReduceStockRequest {
+    private List<ReduceStockRequest> items;
+    private String reference;
+}
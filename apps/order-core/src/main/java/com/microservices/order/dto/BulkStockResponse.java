@@ -5,12 +5,14 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class StockResponse {
+public class BulkStockResponse {
     private boolean success;
     private String message;
-    private Integer remainingStock;
+    private List<StockResponse> items;
 }
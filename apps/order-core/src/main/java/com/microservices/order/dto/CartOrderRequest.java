@@ -0,0 +1,21 @@
+package com.microservices.order.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartOrderRequest {
+
+    @NotEmpty(message = "At least one item is required")
+    @Valid
+    private List<OrderItemRequest> items;
+}
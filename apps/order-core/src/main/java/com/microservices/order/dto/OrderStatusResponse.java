@@ -0,0 +1,20 @@
+package com.microservices.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusResponse {
+    private Long id;
+    private String orderNumber;
+    private String status;
+    private String message;
+    private LocalDateTime updatedAt;
+}
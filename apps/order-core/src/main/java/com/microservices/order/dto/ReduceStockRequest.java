@@ -12,4 +12,5 @@ import lombok.NoArgsConstructor;
 public class ReduceStockRequest {
     private Long productId;
     private Integer quantity;
+    private String reference;
 }
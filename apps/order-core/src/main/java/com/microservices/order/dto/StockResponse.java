@@ -0,0 +1,21 @@
+package com.microservices.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockResponse {
+    private boolean success;
+    private String message;
+    private Integer remainingStock;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+}
@@ -0,0 +1,8 @@
+package com.microservices.order.number;
+
+// Produces the public order number, which is also the unique key orders, sagas and stock
+// reservations are stored under. Selected with order.number.generator.
+public interface OrderNumberGenerator {
+
+    String next();
+}
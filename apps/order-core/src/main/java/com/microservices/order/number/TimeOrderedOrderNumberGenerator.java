@@ -0,0 +1,105 @@
+package com.microservices.order.number;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style order numbers: ORD- followed by 20 Crockford base32 characters holding the
+// millisecond timestamp, a per-millisecond sequence and the node id. Every part is fixed width,
+// so numbers sort by creation time and new rows land at the right edge of the order_number index.
+//
+// The node id defaults to the pod's IPv4 address, which no two running pods share. Numbers are
+// therefore unique across replicas without coordination. Within a node the timestamp and sequence
+// are one counter advanced by compare-and-set. A burst beyond 32768 orders in a millisecond, or a
+// clock step backwards, borrows the following milliseconds instead of repeating a value or waiting.
+@Component
+@ConditionalOnProperty(name = "order.number.generator", havingValue = "time-ordered", matchIfMissing = true)
+@Slf4j
+public class TimeOrderedOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int SEQUENCE_BITS = 15;
+    // 13 characters cover the 63-bit timestamp and sequence, 7 cover the 32-bit node id
+    private static final int CLOCK_CHARS = 13;
+    private static final int NODE_CHARS = 7;
+    private static final String PREFIX = "ORD-";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final char[] node;
+
+    public TimeOrderedOrderNumberGenerator(@Value("${order.number.node-id:-1}") long nodeId) {
+        long resolved = nodeId >= 0 ? nodeId : localNodeId();
+        if (resolved > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("order.number.node-id must fit in 32 bits: " + nodeId);
+        }
+        this.node = new char[NODE_CHARS];
+        encode(resolved, node, 0, NODE_CHARS);
+        log.info("Order numbers use node id {}", resolved);
+    }
+
+    @Override
+    public String next() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long previous;
+        long value;
+        do {
+            previous = clock.get();
+            value = Math.max(now, previous + 1);
+        } while (!clock.compareAndSet(previous, value));
+
+        char[] chars = new char[PREFIX.length() + CLOCK_CHARS + NODE_CHARS];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        encode(value, chars, PREFIX.length(), CLOCK_CHARS);
+        System.arraycopy(node, 0, chars, PREFIX.length() + CLOCK_CHARS, NODE_CHARS);
+        return new String(chars);
+    }
+
+    private static void encode(long value, char[] target, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            target[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+
+    // The first site-local IPv4 address, which in a pod is the pod IP
+    private static long localNodeId() {
+        try {
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+                    continue;
+                }
+                for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                    if (address instanceof Inet4Address && address.isSiteLocalAddress()) {
+                        return toUnsigned(address);
+                    }
+                }
+            }
+            InetAddress localHost = InetAddress.getLocalHost();
+            if (localHost instanceof Inet4Address && !localHost.isLoopbackAddress()) {
+                return toUnsigned(localHost);
+            }
+        } catch (SocketException | UnknownHostException e) {
+            log.warn("Could not read the local address for the order number node id: {}", e.getMessage());
+        }
+        // Fine for a single instance; replicas without an IPv4 address need order.number.node-id
+        log.warn("No IPv4 address to derive the order number node id from, using 0");
+        return 0;
+    }
+
+    private static long toUnsigned(InetAddress address) {
+        long id = 0;
+        for (byte part : address.getAddress()) {
+            id = (id << 8) | (part & 0xFF);
+        }
+        return id;
+    }
+}
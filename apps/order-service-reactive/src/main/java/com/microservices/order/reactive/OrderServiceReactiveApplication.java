@@ -0,0 +1,17 @@
+package com.microservices.order.reactive;
+
+import com.microservices.common.config.TracingConfig;
+import com.microservices.order.number.OrderNumberGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+// The order number generators live in order-core and the configuration shared by the services
+// in service-common, both outside this package
+@SpringBootApplication(scanBasePackageClasses = {OrderServiceReactiveApplication.class, OrderNumberGenerator.class,
+        TracingConfig.class})
+public class OrderServiceReactiveApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(OrderServiceReactiveApplication.class, args);
+    }
+}
@@ -0,0 +1,75 @@
+package com.microservices.order.reactive.client;
+
+import com.microservices.order.dto.BulkReduceStockRequest;
+import com.microservices.order.dto.BulkStockResponse;
+import com.microservices.order.dto.ReduceStockRequest;
+import com.microservices.order.dto.ReleaseStockRequest;
+import com.microservices.order.dto.StockResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+// Non-blocking counterpart of order-service's Feign InventoryClient. Reservations carry the
+// order number as their reference, so inventory replays a retried one from its journal.
+// Every call holds a permit of the same inventory bulkhead order-service has, so a burst of orders
+// cannot pile up on inventory. A call beyond the limit waits up to bulkhead-wait for a permit and then
+// fails with BulkheadFullException. The wait polls on a timer instead of the bulkhead's own
+// max-wait-duration, which would block the event loop.
+@Component
+public class InventoryClient {
+
+    public static final String INSTANCE = "inventory";
+
+    private static final Duration PERMIT_POLL_INTERVAL = Duration.ofMillis(20);
+
+    private final WebClient inventoryWebClient;
+    private final Bulkhead bulkhead;
+    private final Retry permitWait;
+
+    public InventoryClient(WebClient inventoryWebClient, BulkheadRegistry bulkheadRegistry,
+                           @Value("${order.inventory-client.bulkhead-wait:1s}") Duration bulkheadWait) {
+        this.inventoryWebClient = inventoryWebClient;
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+        this.permitWait = Retry.fixedDelay(bulkheadWait.dividedBy(PERMIT_POLL_INTERVAL), PERMIT_POLL_INTERVAL)
+                .filter(BulkheadFullException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    public Mono<StockResponse> reduceStock(ReduceStockRequest request) {
+        return inventoryWebClient.post()
+                .uri("/api/products/reduce-stock")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(StockResponse.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .retryWhen(permitWait);
+    }
+
+    public Mono<BulkStockResponse> reduceStockBulk(BulkReduceStockRequest request) {
+        return inventoryWebClient.post()
+                .uri("/api/products/reduce-stock/bulk")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(BulkStockResponse.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .retryWhen(permitWait);
+    }
+
+    public Mono<BulkStockResponse> releaseStock(ReleaseStockRequest request) {
+        return inventoryWebClient.post()
+                .uri("/api/products/release-stock")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(BulkStockResponse.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .retryWhen(permitWait);
+    }
+}
@@ -0,0 +1,39 @@
+package com.microservices.order.reactive.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class WebClientConfig {
+
+    // Pooled keep-alive connections to inventory; callers wait at most pending-acquire-timeout for one
+    @Bean
+    public WebClient inventoryWebClient(WebClient.Builder builder,
+                                        @Value("${inventory.service.url}") String inventoryServiceUrl,
+                                        @Value("${order.inventory-client.max-connections:100}") int maxConnections,
+                                        @Value("${order.inventory-client.pending-acquire-timeout:1s}") Duration pendingAcquireTimeout,
+                                        @Value("${order.inventory-client.connect-timeout:1s}") Duration connectTimeout,
+                                        @Value("${order.inventory-client.response-timeout:3s}") Duration responseTimeout) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("inventory-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return builder
+                .baseUrl(inventoryServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
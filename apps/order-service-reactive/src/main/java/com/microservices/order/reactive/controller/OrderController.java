@@ -0,0 +1,67 @@
+package com.microservices.order.reactive.controller;
+
+import com.microservices.order.dto.CartOrderRequest;
+import com.microservices.order.dto.OrderRequest;
+import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.reactive.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+@Tag(name = "Order Management", description = "Non-blocking APIs for placing and reading orders")
+@CrossOrigin(origins = "*")
+public class OrderController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final OrderService orderService;
+
+    @PostMapping
+    @Operation(summary = "Create a new order", description = "Creates a new order by checking inventory and reducing stock")
+    public Mono<ResponseEntity<OrderResponse>> createOrder(@Valid @RequestBody OrderRequest orderRequest) {
+        return orderService.createOrder(orderRequest)
+                .map(response -> new ResponseEntity<>(response, HttpStatus.CREATED));
+    }
+
+    @PostMapping("/cart")
+    @Operation(summary = "Create a multi-item order", description = "Creates one order for all cart lines with a single inventory reservation")
+    public Mono<ResponseEntity<OrderResponse>> createCartOrder(@Valid @RequestBody CartOrderRequest cartOrderRequest) {
+        return orderService.createCartOrder(cartOrderRequest)
+                .map(response -> new ResponseEntity<>(response, HttpStatus.CREATED));
+    }
+
+    @GetMapping
+    @Operation(summary = "Get orders", description = "Retrieve orders by ascending id, one page at a time. "
+            + "Pass afterId from the previous page's Link header to continue.")
+    public Mono<ResponseEntity<List<OrderResponse>>> getAllOrders(@RequestParam(defaultValue = "0") Long afterId,
+                                                                  @RequestParam(defaultValue = "100") Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return orderService.getOrders(afterId, pageSize)
+                .map(orders -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (orders.size() == pageSize) {
+                        response.header(HttpHeaders.LINK, "</api/orders?afterId=" + orders.get(orders.size() - 1).getId()
+                                + "&limit=" + pageSize + ">; rel=\"next\"");
+                    }
+                    return response.body(orders);
+                });
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get order by ID", description = "Retrieve detailed information about a specific order")
+    public Mono<ResponseEntity<OrderResponse>> getOrderById(@PathVariable Long id) {
+        return orderService.getOrderById(id)
+                .map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,55 @@
+package com.microservices.order.reactive.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Maps the orders table owned by order-service; items are loaded and saved separately
+@Table("orders")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Order {
+
+    @Id
+    private Long id;
+
+    @Column("order_number")
+    private String orderNumber;
+
+    @Transient
+    @Builder.Default
+    private List<OrderItem> orderItems = new ArrayList<>();
+
+    @Column("total_amount")
+    private BigDecimal totalAmount;
+
+    private OrderStatus status;
+
+    @Column("failure_reason")
+    private String failureReason;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum OrderStatus {
+        PENDING,
+        CONFIRMED,
+        FAILED,
+        CANCELLED
+    }
+}
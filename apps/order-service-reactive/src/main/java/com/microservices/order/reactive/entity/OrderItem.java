@@ -0,0 +1,39 @@
+package com.microservices.order.reactive.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+
+@Table("order_items")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderItem {
+
+    @Id
+    private Long id;
+
+    @Column("order_id")
+    private Long orderId;
+
+    @Column("product_id")
+    private Long productId;
+
+    @Column("product_name")
+    private String productName;
+
+    private Integer quantity;
+
+    @Column("unit_price")
+    private BigDecimal unitPrice;
+
+    @Column("total_price")
+    private BigDecimal totalPrice;
+}
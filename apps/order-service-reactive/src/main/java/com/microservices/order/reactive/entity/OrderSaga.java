@@ -0,0 +1,48 @@
+package com.microservices.order.reactive.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+// Same order_sagas rows as order-service, so its recovery sweeper also resolves sagas left here.
+// Lines live in order_saga_lines and are written by OrderSagaCoordinator.
+@Table("order_sagas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSaga {
+
+    @Id
+    private Long id;
+
+    @Column("order_number")
+    private String orderNumber;
+
+    private SagaStatus status;
+
+    private int attempts;
+
+    @Column("last_error")
+    private String lastError;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum SagaStatus {
+        STARTED,
+        COMPLETED,
+        ABORTED,
+        COMPENSATING,
+        COMPENSATED
+    }
+}
@@ -0,0 +1,8 @@
+package com.microservices.order.reactive.exception;
+
+// Inventory Service had no bulkhead permit free within the wait; nothing was reserved
+public class InventoryBusyException extends RuntimeException {
+    public InventoryBusyException(String message) {
+        super(message);
+    }
+}
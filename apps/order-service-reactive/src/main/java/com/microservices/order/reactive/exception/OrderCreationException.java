@@ -0,0 +1,7 @@
+package com.microservices.order.reactive.exception;
+
+public class OrderCreationException extends RuntimeException {
+    public OrderCreationException(String message) {
+        super(message);
+    }
+}
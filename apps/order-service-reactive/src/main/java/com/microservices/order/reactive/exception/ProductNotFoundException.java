@@ -0,0 +1,7 @@
+package com.microservices.order.reactive.exception;
+
+public class ProductNotFoundException extends RuntimeException {
+    public ProductNotFoundException(String message) {
+        super(message);
+    }
+}
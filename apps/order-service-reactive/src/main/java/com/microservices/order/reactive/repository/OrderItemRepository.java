@@ -0,0 +1,14 @@
+package com.microservices.order.reactive.repository;
+
+import com.microservices.order.reactive.entity.OrderItem;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+@Repository
+public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long> {
+
+    Flux<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
+}
@@ -0,0 +1,15 @@
+package com.microservices.order.reactive.repository;
+
+import com.microservices.order.reactive.entity.Order;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+
+    @Query("SELECT * FROM orders WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Order> findPage(@Param("afterId") Long afterId, @Param("limit") int limit);
+}
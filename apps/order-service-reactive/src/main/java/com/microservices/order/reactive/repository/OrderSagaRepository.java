@@ -0,0 +1,12 @@
+package com.microservices.order.reactive.repository;
+
+import com.microservices.order.reactive.entity.OrderSaga;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface OrderSagaRepository extends ReactiveCrudRepository<OrderSaga, Long> {
+
+    Mono<OrderSaga> findByOrderNumber(String orderNumber);
+}
@@ -0,0 +1,52 @@
+package com.microservices.order.reactive.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Takes ids from the sequences order-service's Hibernate mapping uses, the same way its pooled
+// optimizer does: each nextval reserves the block of 50 ids ending at the value. Both services can
+// then insert into one database without handing out the same id twice.
+@Component
+@RequiredArgsConstructor
+public class PooledIdAllocator {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public Mono<Long> nextId(String sequence) {
+        Block block = blocks.computeIfAbsent(sequence, name -> new Block());
+        Long id = block.take();
+        if (id != null) {
+            return Mono.just(id);
+        }
+        return databaseClient.sql("SELECT nextval(:sequence)")
+                .bind("sequence", sequence)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(block::refill);
+    }
+
+    // Concurrent refills each take a block of their own; what is left of a replaced block is skipped
+    private static class Block {
+
+        private long next = 1;
+        private long last = 0;
+
+        synchronized Long take() {
+            return next <= last ? next++ : null;
+        }
+
+        synchronized long refill(long last) {
+            this.next = Math.max(last - ALLOCATION_SIZE + 1, 1);
+            this.last = last;
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.microservices.order.reactive.service;
+
+import com.microservices.order.dto.ReduceStockRequest;
+import com.microservices.order.dto.ReleaseStockRequest;
+import com.microservices.order.reactive.client.InventoryClient;
+import com.microservices.order.reactive.entity.Order;
+import com.microservices.order.reactive.entity.OrderItem;
+import com.microservices.order.reactive.entity.OrderSaga;
+import com.microservices.order.reactive.repository.OrderSagaRepository;
+import com.microservices.order.reactive.repository.PooledIdAllocator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reactive counterpart of order-service's OrderSagaCoordinator, writing the same saga rows
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSagaCoordinator {
+
+    private static final String ORDER_ID_SEQUENCE = "orders_id_seq";
+    private static final String ORDER_ITEM_ID_SEQUENCE = "order_items_id_seq";
+
+    private final OrderSagaRepository orderSagaRepository;
+    private final PooledIdAllocator pooledIdAllocator;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final DatabaseClient databaseClient;
+    private final InventoryClient inventoryClient;
+
+    @Transactional
+    public Mono<Void> begin(String orderNumber, List<ReduceStockRequest> lines) {
+        LocalDateTime now = LocalDateTime.now();
+        return orderSagaRepository.save(OrderSaga.builder()
+                        .orderNumber(orderNumber)
+                        .status(OrderSaga.SagaStatus.STARTED)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build())
+                .flatMapMany(saga -> Flux.fromIterable(lines)
+                        .concatMap(line -> databaseClient.sql("INSERT INTO order_saga_lines (saga_id, product_id, quantity) "
+                                        + "VALUES (:sagaId, :productId, :quantity)")
+                                .bind("sagaId", saga.getId())
+                                .bind("productId", line.getProductId())
+                                .bind("quantity", line.getQuantity())
+                                .then()))
+                .then();
+    }
+
+    // The order insert and the saga transition commit together, so a saved order always has a completed saga.
+    // Ids are set before the insert, from the sequences order-service allocates from.
+    @Transactional
+    public Mono<Order> complete(Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        List<OrderItem> items = order.getOrderItems();
+        return pooledIdAllocator.nextId(ORDER_ID_SEQUENCE)
+                .flatMap(id -> {
+                    order.setId(id);
+                    return entityTemplate.insert(order);
+                })
+                .flatMap(savedOrder -> Flux.fromIterable(items)
+                        .concatMap(item -> pooledIdAllocator.nextId(ORDER_ITEM_ID_SEQUENCE)
+                                .flatMap(id -> {
+                                    item.setId(id);
+                                    item.setOrderId(savedOrder.getId());
+                                    return entityTemplate.insert(item);
+                                }))
+                        .collectList()
+                        .doOnNext(savedOrder::setOrderItems)
+                        .thenReturn(savedOrder))
+                .flatMap(savedOrder -> transition(savedOrder.getOrderNumber(), OrderSaga.SagaStatus.COMPLETED)
+                        .thenReturn(savedOrder));
+    }
+
+    public Mono<Void> abort(String orderNumber) {
+        return transition(orderNumber, OrderSaga.SagaStatus.ABORTED);
+    }
+
+    public Mono<Void> compensate(String orderNumber, List<ReduceStockRequest> lines, String reason) {
+        return orderSagaRepository.findByOrderNumber(orderNumber)
+                .flatMap(saga -> {
+                    log.warn("Compensating stock reservation for order {}: {}", orderNumber, reason);
+                    saga.setAttempts(saga.getAttempts() + 1);
+                    return inventoryClient.releaseStock(ReleaseStockRequest.builder()
+                                    .reference(orderNumber)
+                                    .items(lines)
+                                    .build())
+                            .then(Mono.fromSupplier(() -> {
+                                saga.setStatus(OrderSaga.SagaStatus.COMPENSATED);
+                                log.info("Stock reservation for order {} released", orderNumber);
+                                return saga;
+                            }))
+                            .onErrorResume(e -> {
+                                saga.setStatus(OrderSaga.SagaStatus.COMPENSATING);
+                                saga.setLastError(e.getMessage());
+                                log.error("Failed to release stock for order {}, recovery will retry: {}", orderNumber, e.getMessage());
+                                return Mono.just(saga);
+                            });
+                })
+                .flatMap(saga -> {
+                    saga.setUpdatedAt(LocalDateTime.now());
+                    return orderSagaRepository.save(saga);
+                })
+                .then();
+    }
+
+    private Mono<Void> transition(String orderNumber, OrderSaga.SagaStatus status) {
+        return orderSagaRepository.findByOrderNumber(orderNumber)
+                .flatMap(saga -> {
+                    saga.setStatus(status);
+                    saga.setUpdatedAt(LocalDateTime.now());
+                    return orderSagaRepository.save(saga);
+                })
+                .then();
+    }
+}
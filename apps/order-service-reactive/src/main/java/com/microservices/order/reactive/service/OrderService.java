@@ -0,0 +1,219 @@
+package com.microservices.order.reactive.service;
+
+import com.microservices.common.config.SampledLogFilter;
+import com.microservices.order.dto.*;
+import com.microservices.order.number.OrderNumberGenerator;
+import com.microservices.order.reactive.client.InventoryClient;
+import com.microservices.order.reactive.entity.Order;
+import com.microservices.order.reactive.entity.OrderItem;
+import com.microservices.order.reactive.exception.InsufficientStockException;
+import com.microservices.order.reactive.exception.InventoryBusyException;
+import com.microservices.order.reactive.exception.OrderCreationException;
+import com.microservices.order.reactive.exception.ProductNotFoundException;
+import com.microservices.order.reactive.repository.OrderItemRepository;
+import com.microservices.order.reactive.repository.OrderRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Same rules as order-service's OrderService: inventory validates and reserves stock and returns
+// the price snapshot, the total is the sum of the reserved lines, and a reservation whose order
+// could not be saved is released.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderService {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryClient inventoryClient;
+    private final OrderSagaCoordinator orderSagaCoordinator;
+    private final OrderNumberGenerator orderNumberGenerator;
+
+    public Mono<OrderResponse> createOrder(OrderRequest orderRequest) {
+        log.debug("Creating order for product ID: {} with quantity: {}",
+                orderRequest.getProductId(), orderRequest.getQuantity());
+
+        String orderNumber = orderNumberGenerator.next();
+        ReduceStockRequest reduceStockRequest = ReduceStockRequest.builder()
+                .productId(orderRequest.getProductId())
+                .quantity(orderRequest.getQuantity())
+                .reference(orderNumber)
+                .build();
+        List<ReduceStockRequest> lines = List.of(reduceStockRequest);
+
+        return orderSagaCoordinator.begin(orderNumber, lines)
+                .then(inventoryClient.reduceStock(reduceStockRequest)
+                        .onErrorResume(e -> reservationFailed(orderNumber, lines, e,
+                                "Product not found with ID: " + orderRequest.getProductId())))
+                .doOnNext(stockResponse -> log.debug("Stock reduced successfully for product: {}. Remaining stock: {}",
+                        stockResponse.getProductName(), stockResponse.getRemainingStock()))
+                .flatMap(stockResponse -> saveOrCompensate(createOrderEntity(orderNumber, orderRequest, stockResponse), lines))
+                .map(savedOrder -> mapToOrderResponse(savedOrder, "Order placed successfully!"));
+    }
+
+    public Mono<OrderResponse> createCartOrder(CartOrderRequest cartOrderRequest) {
+        log.debug("Creating order with {} items", cartOrderRequest.getItems().size());
+
+        String orderNumber = orderNumberGenerator.next();
+        BulkReduceStockRequest reduceStockRequest = BulkReduceStockRequest.builder()
+                .items(cartOrderRequest.getItems().stream()
+                        .map(item -> ReduceStockRequest.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .collect(Collectors.toList()))
+                .reference(orderNumber)
+                .build();
+        List<ReduceStockRequest> lines = reduceStockRequest.getItems();
+
+        return orderSagaCoordinator.begin(orderNumber, lines)
+                .then(inventoryClient.reduceStockBulk(reduceStockRequest)
+                        .onErrorResume(e -> reservationFailed(orderNumber, lines, e,
+                                "One or more products in the order were not found")))
+                .doOnNext(stockResponse -> log.debug("Stock reduced successfully for {} products", stockResponse.getItems().size()))
+                .flatMap(stockResponse -> saveOrCompensate(createOrderEntity(orderNumber, cartOrderRequest, stockResponse), lines))
+                .map(savedOrder -> mapToOrderResponse(savedOrder, "Order placed successfully!"));
+    }
+
+    public Mono<List<OrderResponse>> getOrders(Long afterId, int limit) {
+        return orderRepository.findPage(afterId, limit)
+                .collectList()
+                .flatMap(this::withItems)
+                .map(orders -> orders.stream()
+                        .map(order -> mapToOrderResponse(order, null))
+                        .collect(Collectors.toList()));
+    }
+
+    public Mono<OrderResponse> getOrderById(Long id) {
+        return orderRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new OrderCreationException("Order not found with ID: " + id)))
+                .flatMap(order -> withItems(List.of(order)))
+                .map(orders -> mapToOrderResponse(orders.get(0), null));
+    }
+
+    private Mono<List<Order>> withItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Mono.just(orders);
+        }
+        return orderItemRepository.findByOrderIdIn(orders.stream().map(Order::getId).collect(Collectors.toList()))
+                .collectMultimap(OrderItem::getOrderId)
+                .map(items -> {
+                    orders.forEach(order -> order.setOrderItems(List.copyOf(items.getOrDefault(order.getId(), List.of()))));
+                    return orders;
+                });
+    }
+
+    private <T> Mono<T> reservationFailed(String orderNumber, List<ReduceStockRequest> lines, Throwable e, String notFoundMessage) {
+        if (e instanceof WebClientResponseException.NotFound) {
+            log.error("Product not found for order {}: {}", orderNumber, e.getMessage());
+            return orderSagaCoordinator.abort(orderNumber)
+                    .then(Mono.error(new ProductNotFoundException(notFoundMessage)));
+        }
+        if (e instanceof WebClientResponseException.BadRequest) {
+            log.error("Bad request while communicating with Inventory Service: {}", e.getMessage());
+            return orderSagaCoordinator.abort(orderNumber)
+                    .then(Mono.error(new InsufficientStockException("Unable to process order due to stock issues")));
+        }
+        // Refused by the bulkhead before anything was sent, so no stock was taken
+        if (e instanceof BulkheadFullException) {
+            log.warn(SampledLogFilter.SAMPLED, "Inventory Service bulkhead is full, order {} not reserved", orderNumber);
+            return orderSagaCoordinator.abort(orderNumber)
+                    .then(Mono.error(new InventoryBusyException("Too many orders in progress. Please try again shortly.")));
+        }
+        // Timeouts and server errors leave it unknown whether stock was taken, so hand it back
+        log.error("Error communicating with Inventory Service: {}", e.getMessage());
+        return orderSagaCoordinator.compensate(orderNumber, lines, e.getMessage())
+                .then(Mono.error(new OrderCreationException("Failed to create order. Please try again later.")));
+    }
+
+    private Mono<Order> saveOrCompensate(Order order, List<ReduceStockRequest> lines) {
+        return orderSagaCoordinator.complete(order)
+                .doOnNext(savedOrder -> log.info(SampledLogFilter.SAMPLED, "Order created successfully with order number: {}",
+                        savedOrder.getOrderNumber()))
+                .onErrorResume(e -> {
+                    log.error("Failed to save order {}: {}", order.getOrderNumber(), e.getMessage());
+                    return orderSagaCoordinator.compensate(order.getOrderNumber(), lines, e.getMessage())
+                            .then(Mono.error(new OrderCreationException("Failed to create order. Please try again later.")));
+                });
+    }
+
+    private Order createOrderEntity(String orderNumber, OrderRequest orderRequest, StockResponse reserved) {
+        BigDecimal unitPrice = reserved.getPrice();
+        BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(orderRequest.getQuantity()));
+
+        OrderItem orderItem = OrderItem.builder()
+                .productId(reserved.getProductId())
+                .productName(reserved.getProductName())
+                .quantity(orderRequest.getQuantity())
+                .unitPrice(unitPrice)
+                .totalPrice(totalPrice)
+                .build();
+
+        return Order.builder()
+                .orderNumber(orderNumber)
+                .orderItems(List.of(orderItem))
+                .totalAmount(totalPrice)
+                .status(Order.OrderStatus.CONFIRMED)
+                .build();
+    }
+
+    private Order createOrderEntity(String orderNumber, CartOrderRequest cartOrderRequest, BulkStockResponse stockResponse) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        cartOrderRequest.getItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .status(Order.OrderStatus.CONFIRMED)
+                .build();
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (StockResponse reserved : stockResponse.getItems()) {
+            int quantity = quantities.get(reserved.getProductId());
+            BigDecimal totalPrice = reserved.getPrice().multiply(BigDecimal.valueOf(quantity));
+
+            order.getOrderItems().add(OrderItem.builder()
+                    .productId(reserved.getProductId())
+                    .productName(reserved.getProductName())
+                    .quantity(quantity)
+                    .unitPrice(reserved.getPrice())
+                    .totalPrice(totalPrice)
+                    .build());
+            totalAmount = totalAmount.add(totalPrice);
+        }
+
+        order.setTotalAmount(totalAmount);
+        return order;
+    }
+
+    private OrderResponse mapToOrderResponse(Order order, String message) {
+        List<OrderItemResponse> items = order.getOrderItems().stream()
+                .map(item -> OrderItemResponse.builder()
+                        .productId(item.getProductId())
+                        .productName(item.getProductName())
+                        .quantity(item.getQuantity())
+                        .unitPrice(item.getUnitPrice())
+                        .totalPrice(item.getTotalPrice())
+                        .build())
+                .collect(Collectors.toList());
+
+        return OrderResponse.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .items(items)
+                .totalAmount(order.getTotalAmount())
+                .status(order.getStatus().name())
+                .createdAt(order.getCreatedAt())
+                .message(message)
+                .build();
+    }
+}
@@ -1,11 +1,15 @@
 package com.microservices.order;
 
+import com.microservices.common.config.TracingConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// The configuration shared by the services lives in service-common, outside this package
+@SpringBootApplication(scanBasePackageClasses = {OrderServiceApplication.class, TracingConfig.class})
 @EnableFeignClients
+@EnableScheduling
 public class OrderServiceApplication {
 
     public static void main(String[] args) {
@@ -1,9 +1,14 @@
 package com.microservices.order.client;
 
+import com.microservices.order.dto.BulkReduceStockRequest;
+import com.microservices.order.dto.BulkStockResponse;
 import com.microservices.order.dto.ProductResponse;
 import com.microservices.order.dto.ReduceStockRequest;
+import com.microservices.order.dto.ReleaseStockRequest;
 import com.microservices.order.dto.StockResponse;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @FeignClient(name = "inventory-service", url = "${inventory.service.url}")
@@ -12,6 +17,18 @@ public interface InventoryClient {
     @GetMapping("/api/products/{id}")
     ProductResponse getProductById(@PathVariable("id") Long id);
 
+    @GetMapping("/api/products/{id}")
+    ResponseEntity<ProductResponse> getProductByIdIfNoneMatch(@PathVariable("id") Long id,
+                                                              @RequestHeader(HttpHeaders.IF_NONE_MATCH) String eTag);
+
+    // Requests carry the order number as their reference, so inventory replays a retried
+    // reservation from its journal
     @PostMapping("/api/products/reduce-stock")
     StockResponse reduceStock(@RequestBody ReduceStockRequest request);
+
+    @PostMapping("/api/products/reduce-stock/bulk")
+    BulkStockResponse reduceStockBulk(@RequestBody BulkReduceStockRequest request);
+
+    @PostMapping("/api/products/release-stock")
+    BulkStockResponse releaseStock(@RequestBody ReleaseStockRequest request);
 }
@@ -0,0 +1,29 @@
+package com.microservices.order.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+
+// Reads the code inventory-service puts on error responses whose status alone is ambiguous
+public final class InventoryErrors {
+
+    // The reference was released before it could be reserved; reserving again cannot succeed
+    public static final String RESERVATION_RELEASED = "RESERVATION_RELEASED";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private InventoryErrors() {
+    }
+
+    public static boolean isReservationReleased(FeignException e) {
+        return e instanceof FeignException.Conflict && RESERVATION_RELEASED.equals(code(e));
+    }
+
+    private static String code(FeignException e) {
+        try {
+            return OBJECT_MAPPER.readTree(e.contentUTF8()).path("code").asText(null);
+        } catch (JsonProcessingException ex) {
+            return null;
+        }
+    }
+}
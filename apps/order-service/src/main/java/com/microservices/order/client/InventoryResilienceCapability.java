@@ -0,0 +1,61 @@
+package com.microservices.order.client;
+
+import feign.Capability;
+import feign.Client;
+import feign.Response;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Guards every Inventory Service call with a concurrency bulkhead and a circuit breaker. A rejected
+// call fails like a connection error, so callers see the usual retryable FeignException and the
+// order paths fall back to OrderCreationException, a retry from the outbox, or a saga compensation.
+// Only transport errors and 5xx responses count against the breaker; 4xx answers are healthy.
+@Component
+public class InventoryResilienceCapability implements Capability {
+
+    public static final String INSTANCE = "inventory";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public InventoryResilienceCapability(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            if (!bulkhead.tryAcquirePermission()) {
+                throw new IOException("Inventory Service bulkhead is full");
+            }
+            try {
+                if (!circuitBreaker.tryAcquirePermission()) {
+                    throw new IOException("Inventory Service circuit breaker is " + circuitBreaker.getState());
+                }
+                long start = circuitBreaker.getCurrentTimestamp();
+                try {
+                    Response response = client.execute(request, options);
+                    long duration = circuitBreaker.getCurrentTimestamp() - start;
+                    if (response.status() >= 500) {
+                        circuitBreaker.onError(duration, circuitBreaker.getTimestampUnit(),
+                                new IOException("Inventory Service responded " + response.status()));
+                    } else {
+                        circuitBreaker.onSuccess(duration, circuitBreaker.getTimestampUnit());
+                    }
+                    return response;
+                } catch (IOException | RuntimeException e) {
+                    circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+                    throw e;
+                }
+            } finally {
+                bulkhead.onComplete();
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.microservices.order.client;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.microservices.order.dto.ProductResponse;
+import com.microservices.order.dto.StockResponse;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+// Near-cache for product name and price in front of InventoryClient. Entries are revalidated
+// with If-None-Match after revalidate-after and are never served once older than max-staleness,
+// and dropped early when a reservation reports a different name or price.
+// Stock levels in cached entries are informational only; reservations always go to inventory.
+// Revalidation runs on the application task executor, which uses virtual threads when enabled.
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    private final InventoryClient inventoryClient;
+    private final LoadingCache<Long, CachedProduct> cache;
+
+    public ProductCatalogCache(InventoryClient inventoryClient,
+                               MeterRegistry meterRegistry,
+                               @Qualifier("applicationTaskExecutor") Executor refreshExecutor,
+                               @Value("${order.product-cache.maximum-size:10000}") long maximumSize,
+                               @Value("${order.product-cache.revalidate-after:30s}") Duration revalidateAfter,
+                               @Value("${order.product-cache.max-staleness:2m}") Duration maxStaleness) {
+        this.inventoryClient = inventoryClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(revalidateAfter)
+                .expireAfterWrite(maxStaleness)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new Loader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-catalog");
+    }
+
+    public ProductResponse getProduct(Long productId) {
+        return cache.get(productId).product();
+    }
+
+    // A reservation answers with inventory's current name and price. A cached entry that disagrees is
+    // dropped, so asynchronous orders are not priced from it until the next revalidation.
+    public void evictIfOutdated(StockResponse reserved) {
+        CachedProduct cached = cache.getIfPresent(reserved.getProductId());
+        if (cached != null && (!Objects.equals(cached.product().getName(), reserved.getProductName())
+                || cached.product().getPrice().compareTo(reserved.getPrice()) != 0)) {
+            log.info("Product {} changed in inventory. Evicting from cache.", reserved.getProductId());
+            cache.invalidate(reserved.getProductId());
+        }
+    }
+
+    private CachedProduct fetch(Long productId, String eTag) {
+        ResponseEntity<ProductResponse> response = inventoryClient.getProductByIdIfNoneMatch(productId, eTag);
+        return new CachedProduct(response.getBody(), response.getHeaders().getETag());
+    }
+
+    private class Loader implements CacheLoader<Long, CachedProduct> {
+
+        @Override
+        public CachedProduct load(Long productId) {
+            return fetch(productId, null);
+        }
+
+        @Override
+        public CachedProduct reload(Long productId, CachedProduct oldValue) {
+            if (oldValue.eTag() == null) {
+                return load(productId);
+            }
+            try {
+                return fetch(productId, oldValue.eTag());
+            } catch (FeignException e) {
+                if (e.status() == HttpStatus.NOT_MODIFIED.value()) {
+                    return oldValue;
+                }
+                if (e instanceof FeignException.NotFound) {
+                    log.info("Product {} no longer exists in inventory. Evicting from cache.", productId);
+                    return null;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private record CachedProduct(ProductResponse product, String eTag) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.microservices.order.config;
+
+import com.microservices.common.config.RequestIdFilter;
+import feign.RequestInterceptor;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class InventoryClientConfig {
+
+    // Exposes httpcomponents.httpclient.pool.* gauges for the Feign connection pool
+    @Bean
+    public MeterBinder inventoryConnectionPoolMetrics(HttpClientConnectionManager hc5ConnectionManager) {
+        return registry -> {
+            if (hc5ConnectionManager instanceof PoolingHttpClientConnectionManager pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder(pool, "inventory-service").bindTo(registry);
+            }
+        };
+    }
+
+    // Carries the request id to Inventory Service so both services log it
+    @Bean
+    public RequestInterceptor requestIdPropagation() {
+        return template -> {
+            String requestId = MDC.get(RequestIdFilter.REQUEST_ID);
+            if (requestId != null) {
+                template.header(RequestIdFilter.HEADER, requestId);
+            }
+        };
+    }
+}
@@ -1,16 +1,28 @@
 package com.microservices.order.controller;
 
+import com.microservices.order.dto.BulkOrderRequest;
+import com.microservices.order.dto.BulkOrderResponse;
+import com.microservices.order.dto.CartOrderRequest;
+import com.microservices.order.dto.OrderItemRequest;
 import com.microservices.order.dto.OrderRequest;
 import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.OrderStatusResponse;
+import com.microservices.order.service.IdempotencyStore;
+import com.microservices.order.service.OrderExportService;
 import com.microservices.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -20,20 +32,89 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${order.async.enabled:false}")
+    private boolean asyncEnabled;
 
+    // A retry carrying the same Idempotency-Key gets the stored response. A request re-run under its
+    // key, after the first attempt died mid-flight or its response could not be stored, reuses the
+    // first attempt's order number and so finds its order and stock reservation.
     @PostMapping
-    @Operation(summary = "Create a new order", description = "Creates a new order by checking inventory and reducing stock")
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest orderRequest) {
-        OrderResponse response = orderService.createOrder(orderRequest);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    @Operation(summary = "Create a new order", description = "Creates a new order by checking inventory and reducing stock. "
+            + "When asynchronous processing is enabled the order is accepted as PENDING and 202 is returned. "
+            + "Retries carrying the same Idempotency-Key get the stored response.")
+    public ResponseEntity<OrderResponse> createOrder(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                     @Valid @RequestBody OrderRequest orderRequest) {
+        return idempotencyStore.execute(idempotencyKey, orderRequest, OrderResponse.class, keyedOrderNumber -> {
+            if (asyncEnabled) {
+                return accepted(orderService.submitOrder(List.of(OrderItemRequest.builder()
+                        .productId(orderRequest.getProductId())
+                        .quantity(orderRequest.getQuantity())
+                        .build()), keyedOrderNumber));
+            }
+            OrderResponse response = orderService.createOrder(orderRequest, keyedOrderNumber);
+            return new ResponseEntity<>(response, HttpStatus.CREATED);
+        });
+    }
+
+    @PostMapping("/cart")
+    @Operation(summary = "Create a multi-item order", description = "Creates one order for all cart lines with a single inventory reservation. "
+            + "Retries carrying the same Idempotency-Key get the stored response.")
+    public ResponseEntity<OrderResponse> createCartOrder(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                         @Valid @RequestBody CartOrderRequest cartOrderRequest) {
+        return idempotencyStore.execute(idempotencyKey, cartOrderRequest, OrderResponse.class, keyedOrderNumber -> {
+            if (asyncEnabled) {
+                return accepted(orderService.submitOrder(cartOrderRequest.getItems(), keyedOrderNumber));
+            }
+            OrderResponse response = orderService.createCartOrder(cartOrderRequest, keyedOrderNumber);
+            return new ResponseEntity<>(response, HttpStatus.CREATED);
+        });
+    }
+
+    // Bulk orders always go through the outbox. They are stored as PENDING in one batched transaction and
+    // reserved by the dispatcher, so the endpoint is only served when asynchronous processing is on.
+    @PostMapping("/bulk")
+    @Operation(summary = "Submit many orders", description = "Accepts up to 500 multi-item orders as PENDING in one request. "
+            + "Each order is reserved on its own and tracked through its status URL. Requires asynchronous processing.")
+    public ResponseEntity<BulkOrderResponse> submitBulkOrder(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                             @Valid @RequestBody BulkOrderRequest bulkOrderRequest) {
+        if (!asyncEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        return idempotencyStore.execute(idempotencyKey, bulkOrderRequest, BulkOrderResponse.class, keyedOrderNumber ->
+                ResponseEntity.accepted().body(BulkOrderResponse.builder()
+                        .orders(orderService.submitOrders(bulkOrderRequest.getOrders(), keyedOrderNumber))
+                        .build()));
     }
 
     @GetMapping
-    @Operation(summary = "Get all orders", description = "Retrieve a list of all orders")
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        List<OrderResponse> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    @Operation(summary = "Get orders", description = "Retrieve orders by ascending id, one page at a time. "
+            + "Pass afterId from the previous page's Link header to continue.")
+    public ResponseEntity<List<OrderResponse>> getAllOrders(@RequestParam(defaultValue = "0") Long afterId,
+                                                            @RequestParam(defaultValue = "100") Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<OrderResponse> orders = orderService.getOrders(afterId, pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (orders.size() == pageSize) {
+            response.header(HttpHeaders.LINK, "</api/orders?afterId=" + orders.get(orders.size() - 1).getId()
+                    + "&limit=" + pageSize + ">; rel=\"next\"");
+        }
+        return response.body(orders);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all orders", description = "Stream every order as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        StreamingResponseBody body = orderExportService::exportOrders;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -42,4 +123,17 @@ public class OrderController {
         OrderResponse order = orderService.getOrderById(id);
         return ResponseEntity.ok(order);
     }
+
+    @GetMapping("/{id}/status")
+    @Operation(summary = "Get order status", description = "Track an accepted order through PENDING to CONFIRMED or FAILED")
+    public ResponseEntity<OrderStatusResponse> getOrderStatus(@PathVariable Long id) {
+        OrderStatusResponse status = orderService.getOrderStatus(id);
+        return ResponseEntity.ok(status);
+    }
+
+    private ResponseEntity<OrderResponse> accepted(OrderResponse response) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/" + response.getId() + "/status"))
+                .body(response);
+    }
 }
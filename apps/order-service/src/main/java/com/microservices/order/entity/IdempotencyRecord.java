@@ -0,0 +1,49 @@
+package com.microservices.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A claimed Idempotency-Key. The response columns stay empty while the first request is in progress.
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 64)
+    private String key;
+
+    @Column(name = "request_hash", nullable = false, length = 32)
+    private String requestHash;
+
+    // Claimed with the key, so every run of the request places the same order
+    @Column(name = "order_number", nullable = false)
+    private String orderNumber;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "response_location")
+    private String responseLocation;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public boolean isCompleted() {
+        return responseStatus != null;
+    }
+}
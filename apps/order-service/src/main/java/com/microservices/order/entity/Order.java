@@ -19,8 +19,11 @@ import java.util.List;
 @Builder
 public class Order {
 
+    // Ids come from a sequence in blocks of 50, so inserts can be batched. order-service-reactive
+    // takes its ids from the same sequence in the same blocks.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_seq")
+    @SequenceGenerator(name = "orders_id_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_number", unique = true, nullable = false)
@@ -37,6 +40,9 @@ public class Order {
     @Column(nullable = false)
     private OrderStatus status;
 
+    @Column(name = "failure_reason", length = 1000)
+    private String failureReason;
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
@@ -62,6 +68,15 @@ public class Order {
         item.setOrder(this);
     }
 
+    // The order total is the sum of its line totals
+    public void updateTotalAmount() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : orderItems) {
+            total = total.add(item.getTotalPrice());
+        }
+        totalAmount = total;
+    }
+
     public enum OrderStatus {
         PENDING,
         CONFIRMED,
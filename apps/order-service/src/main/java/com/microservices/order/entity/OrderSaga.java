@@ -0,0 +1,84 @@
+package com.microservices.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "order_sagas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSaga {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_number", unique = true, nullable = false)
+    private String orderNumber;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "order_saga_lines", joinColumns = @JoinColumn(name = "saga_id"))
+    @Builder.Default
+    private List<SagaLine> lines = new ArrayList<>();
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaStatus status;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SagaLine {
+        @Column(name = "product_id", nullable = false)
+        private Long productId;
+
+        @Column(nullable = false)
+        private Integer quantity;
+    }
+
+    public enum SagaStatus {
+        // Reservation requested; stock may or may not be held
+        STARTED,
+        // Order saved; the reservation belongs to it
+        COMPLETED,
+        // Inventory rejected the reservation, nothing is held
+        ABORTED,
+        // Release requested but not yet acknowledged
+        COMPENSATING,
+        COMPENSATED
+    }
+}
@@ -0,0 +1,7 @@
+package com.microservices.order.exception;
+
+public class IdempotencyKeyException extends RuntimeException {
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Returns 1 only for the request that inserted the key, even when duplicates race
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, order_number, locked_at, expires_at) " +
+            "VALUES (:key, :requestHash, :orderNumber, :now, :expiresAt) ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash, @Param("orderNumber") String orderNumber,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedAt = :now " +
+            "WHERE r.key = :key AND r.responseStatus IS NULL AND r.lockedAt < :staleBefore")
+    int takeOver(@Param("key") String key, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // complete and release only act for the request that claimed or took over the key at lockedAt
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :status, r.responseBody = :body, " +
+            "r.responseLocation = :location WHERE r.key = :key AND r.lockedAt = :lockedAt")
+    int complete(@Param("key") String key, @Param("lockedAt") LocalDateTime lockedAt, @Param("status") int status,
+                 @Param("body") String body, @Param("location") String location);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+            "WHERE r.key = :key AND r.lockedAt = :lockedAt AND r.responseStatus IS NULL")
+    int release(@Param("key") String key, @Param("lockedAt") LocalDateTime lockedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,32 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.entity.OrderSaga;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderSagaRepository extends JpaRepository<OrderSaga, Long> {
+    Optional<OrderSaga> findByOrderNumber(String orderNumber);
+
+    List<OrderSaga> findByStatusInAndUpdatedAtBeforeOrderByIdAsc(Collection<OrderSaga.SagaStatus> statuses,
+                                                                 LocalDateTime updatedBefore, Pageable pageable);
+
+    // Moves a saga on only from the status its caller expects, so a stalled request and the recovery
+    // sweeper cannot both act on one reservation. Returns 0 when the saga has moved on already.
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderSaga s SET s.status = :to, s.updatedAt = :now " +
+            "WHERE s.orderNumber = :orderNumber AND s.status = :from")
+    int transition(@Param("orderNumber") String orderNumber, @Param("from") OrderSaga.SagaStatus from,
+                   @Param("to") OrderSaga.SagaStatus to, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,204 @@
+package com.microservices.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microservices.order.entity.IdempotencyRecord;
+import com.microservices.order.entity.OrderSaga;
+import com.microservices.order.exception.IdempotencyKeyException;
+import com.microservices.order.number.OrderNumberGenerator;
+import com.microservices.order.repository.IdempotencyRecordRepository;
+import com.microservices.order.repository.OrderSagaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Function;
+
+// Remembers the response to each Idempotency-Key so that a retried request is answered from
+// the stored response instead of running again. Completed keys are served from a bounded
+// in-memory cache; the idempotency_keys table is authoritative and shared across replicas.
+// A request can run more than once under its key: after an abandoned key is taken over, or when
+// storing the response failed. The key is therefore claimed together with an order number from the
+// generator, and every run is given that number, so a re-run can find what an earlier run already
+// created. Each run owns the key from the locked_at it set; a run that was taken over can no longer
+// store its response or free the key.
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final OrderSagaRepository orderSagaRepository;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            OrderSagaRepository orderSagaRepository,
+                            OrderNumberGenerator orderNumberGenerator,
+                            ObjectMapper objectMapper,
+                            @Value("${order.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${order.idempotency.maximum-size:10000}") long maximumSize,
+                            @Value("${order.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.orderSagaRepository = orderSagaRepository;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.objectMapper = objectMapper;
+        this.canonicalMapper = JsonMapper.builder()
+                .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .build();
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.completed = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    // Keys longer than the column are stored by digest
+    public static String normalize(String key) {
+        return key.length() <= MAX_KEY_LENGTH
+                ? key
+                : DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Only successful responses are stored; a failed request releases its key so the client can retry.
+    // Without a key the action gets a null order number.
+    public <T> ResponseEntity<T> execute(String key, Object request, Class<T> responseType,
+                                         Function<String, ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.apply(null);
+        }
+        String normalizedKey = normalize(key);
+        String requestHash = DigestUtils.md5DigestAsHex(canonicalJson(request));
+
+        IdempotencyRecord cached = completed.getIfPresent(normalizedKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        // locked_at identifies this run, so it must read back exactly as written at the column's precision
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        String orderNumber = orderNumberGenerator.next();
+        if (idempotencyRecordRepository.claim(normalizedKey, requestHash, orderNumber, now, now.plus(ttl)) == 0) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(normalizedKey)
+                    .orElseThrow(() -> new IdempotencyKeyException("Request with this Idempotency-Key has just expired, retry it"));
+            if (existing.isCompleted()) {
+                completed.put(normalizedKey, existing);
+                return replay(existing, requestHash, responseType);
+            }
+            checkSameRequest(existing, requestHash);
+            if (idempotencyRecordRepository.takeOver(normalizedKey, now, now.minus(inProgressTimeout)) == 0) {
+                throw new IdempotencyKeyException("A request with this Idempotency-Key is still being processed");
+            }
+            log.warn("Taking over idempotency key {} abandoned by an earlier request", normalizedKey);
+            orderNumber = existing.getOrderNumber();
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.apply(orderNumber);
+        } catch (RuntimeException e) {
+            release(normalizedKey, orderNumber, now);
+            throw e;
+        }
+
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .key(normalizedKey)
+                .requestHash(requestHash)
+                .orderNumber(orderNumber)
+                .responseStatus(response.getStatusCode().value())
+                .responseBody(write(response.getBody()))
+                .responseLocation(response.getHeaders().getLocation() == null
+                        ? null : response.getHeaders().getLocation().toString())
+                .lockedAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        if (idempotencyRecordRepository.complete(normalizedKey, now, record.getResponseStatus(), record.getResponseBody(),
+                record.getResponseLocation()) == 0) {
+            log.warn("Idempotency key {} was taken over by another request, which stores the response", normalizedKey);
+            return response;
+        }
+        completed.put(normalizedKey, record);
+        return response;
+    }
+
+    // Frees the key for the retry. It stays claimed while the reservation made under its order number may
+    // still be held: the retry then waits for in-progress-timeout and re-runs with that number, which
+    // inventory replays or refuses, instead of reserving again under a new one.
+    private void release(String key, String orderNumber, LocalDateTime lockedAt) {
+        boolean inDoubt = orderSagaRepository.findByOrderNumber(orderNumber)
+                .map(saga -> saga.getStatus() == OrderSaga.SagaStatus.STARTED
+                        || saga.getStatus() == OrderSaga.SagaStatus.COMPENSATING)
+                .orElse(false);
+        if (inDoubt) {
+            log.warn("Keeping idempotency key {}: the stock reservation of order {} is still in doubt", key, orderNumber);
+            return;
+        }
+        idempotencyRecordRepository.release(key, lockedAt);
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.cleanup-interval-ms:300000}")
+    public void removeExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Removed {} expired idempotency keys", removed);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        checkSameRequest(record, requestHash);
+        log.info("Replaying stored response for idempotency key {}", record.getKey());
+        try {
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(record.getResponseStatus());
+            if (record.getResponseLocation() != null) {
+                response.location(URI.create(record.getResponseLocation()));
+            }
+            return response.body(objectMapper.readValue(record.getResponseBody(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + record.getKey() + " is unreadable", e);
+        }
+    }
+
+    private void checkSameRequest(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    // Field order and toString() formatting must not change the hash of an identical request
+    private byte[] canonicalJson(Object request) {
+        try {
+            return canonicalMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Request could not be hashed for its Idempotency-Key", e);
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response could not be stored for replay", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.client.InventoryErrors;
+import com.microservices.order.client.ProductCatalogCache;
+import com.microservices.order.dto.BulkStockResponse;
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Drives accepted orders through stock reservation. Each round claims a batch from the outbox,
+// reserves stock for every order without holding a database transaction, then records all
+// outcomes in one transaction.
+@Component
+@ConditionalOnProperty(name = "order.async.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderDispatcher {
+
+    private final OrderOutboxService orderOutboxService;
+    private final InventoryClient inventoryClient;
+    private final ProductCatalogCache productCatalogCache;
+    private final OrderSagaCoordinator orderSagaCoordinator;
+
+    @Value("${order.async.batch-size:50}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${order.async.dispatch-interval-ms:100}")
+    public void dispatch() {
+        List<OrderOutboxService.ClaimedOrder> batch;
+        do {
+            batch = orderOutboxService.claimBatch(batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<OrderOutboxService.DispatchOutcome> outcomes = new ArrayList<>(batch.size());
+            for (OrderOutboxService.ClaimedOrder claimed : batch) {
+                outcomes.add(reserve(claimed));
+            }
+            orderOutboxService.complete(outcomes);
+            log.info("Dispatched {} pending orders", batch.size());
+
+            // An order given up on after transport errors may still hold stock from a call that timed out
+            for (int i = 0; i < batch.size(); i++) {
+                OrderOutboxService.DispatchOutcome outcome = outcomes.get(i);
+                if (outcome.retryable() && orderOutboxService.isFinal(outcome)) {
+                    OrderOutboxService.ClaimedOrder claimed = batch.get(i);
+                    orderSagaCoordinator.compensate(claimed.orderNumber(), claimed.request().getItems(), outcome.error());
+                }
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private OrderOutboxService.DispatchOutcome reserve(OrderOutboxService.ClaimedOrder claimed) {
+        try {
+            BulkStockResponse reserved = inventoryClient.reduceStockBulk(claimed.request());
+            reserved.getItems().forEach(productCatalogCache::evictIfOutdated);
+            return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                    reserved, null, false);
+        } catch (FeignException.NotFound e) {
+            return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                    null, "One or more products in the order were not found", false);
+        } catch (FeignException.BadRequest e) {
+            return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                    null, "Insufficient stock for one or more products", false);
+        } catch (FeignException.Conflict e) {
+            if (InventoryErrors.isReservationReleased(e)) {
+                return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                        null, "Stock reservation was already released", false);
+            }
+            // A concurrent attempt under the same reference is still running; the retry replays it
+            log.warn("Stock reservation for order {} conflicted, will retry: {}", claimed.orderNumber(), e.getMessage());
+            return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                    null, "Stock reservation conflicted with a concurrent attempt", true);
+        } catch (FeignException e) {
+            log.warn("Stock reservation for order {} failed, will retry: {}", claimed.orderNumber(), e.getMessage());
+            return new OrderOutboxService.DispatchOutcome(claimed.outboxId(), claimed.orderId(), claimed.attempts(),
+                    null, "Inventory Service unavailable", true);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.microservices.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.order.dto.OrderResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${order.export.chunk-size:500}")
+    private int chunkSize;
+
+    // Writes every order as one JSON line. Orders are read in keyset chunks, each in its own
+    // short read-only transaction, so memory use and connection hold time stay constant
+    // regardless of table size.
+    public void exportOrders(OutputStream out) throws IOException {
+        long afterId = 0L;
+        long exported = 0;
+        List<OrderResponse> chunk;
+        do {
+            chunk = orderService.getOrders(afterId, chunkSize);
+            for (OrderResponse order : chunk) {
+                out.write(objectMapper.writeValueAsBytes(order));
+                out.write('\n');
+                afterId = order.getId();
+            }
+            out.flush();
+            exported += chunk.size();
+        } while (chunk.size() == chunkSize);
+
+        log.info("Exported {} orders", exported);
+    }
+}
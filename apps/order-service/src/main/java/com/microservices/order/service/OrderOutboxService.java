@@ -0,0 +1,161 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.BulkReduceStockRequest;
+import com.microservices.order.dto.BulkStockResponse;
+import com.microservices.order.dto.ReduceStockRequest;
+import com.microservices.order.dto.StockResponse;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OutboxEvent;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderOutboxService {
+
+    private final OrderRepository orderRepository;
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Value("${order.async.lease:30s}")
+    private Duration lease;
+
+    @Value("${order.async.max-attempts:5}")
+    private int maxAttempts;
+
+    @Transactional
+    public Order enqueue(Order order) {
+        Order savedOrder = orderRepository.save(order);
+        outboxEventRepository.save(OutboxEvent.builder()
+                .orderId(savedOrder.getId())
+                .build());
+        log.info("Order {} accepted and queued for stock reservation", savedOrder.getOrderNumber());
+        return savedOrder;
+    }
+
+    // Sequence ids are known before the flush, so the orders, their items and the outbox events
+    // go out as a few JDBC batches instead of one round trip per row
+    @Transactional
+    public List<Order> enqueueAll(List<Order> orders) {
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        outboxEventRepository.saveAll(savedOrders.stream()
+                .map(order -> OutboxEvent.builder()
+                        .orderId(order.getId())
+                        .build())
+                .collect(Collectors.toList()));
+        log.info("{} orders accepted and queued for stock reservation", savedOrders.size());
+        return savedOrders;
+    }
+
+    // Claims up to batchSize events by pushing their availability out by the lease, so the
+    // reservation calls can run outside any transaction. Events from a dispatcher that dies
+    // mid-batch become available again once the lease runs out.
+    @Transactional
+    public List<ClaimedOrder> claimBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.findAvailableForUpdate(now, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Order> orders = orderRepository.findAllWithItemsByIdIn(
+                        events.stream().map(OutboxEvent::getOrderId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        return events.stream()
+                .map(event -> {
+                    event.setAttempts(event.getAttempts() + 1);
+                    event.setAvailableAt(now.plus(lease));
+                    Order order = orders.get(event.getOrderId());
+                    return new ClaimedOrder(event.getId(), order.getId(), order.getOrderNumber(), event.getAttempts(),
+                            toReduceStockRequest(order));
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void complete(List<DispatchOutcome> outcomes) {
+        Map<Long, Order> orders = orderRepository.findAllWithItemsByIdIn(
+                        outcomes.stream().map(DispatchOutcome::orderId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        for (DispatchOutcome outcome : outcomes) {
+            Order order = orders.get(outcome.orderId());
+            if (outcome.reserved() != null) {
+                confirm(order, outcome.reserved());
+                outboxEventRepository.deleteById(outcome.outboxId());
+            } else if (isFinal(outcome)) {
+                order.setStatus(Order.OrderStatus.FAILED);
+                order.setFailureReason(outcome.error());
+                outboxEventRepository.deleteById(outcome.outboxId());
+                log.warn("Order {} failed: {}", order.getOrderNumber(), outcome.error());
+            } else {
+                outboxEventRepository.findById(outcome.outboxId()).ifPresent(event -> {
+                    event.setAvailableAt(LocalDateTime.now().plus(backoff(outcome.attempts())));
+                    event.setLastError(outcome.error());
+                });
+            }
+        }
+    }
+
+    public boolean isFinal(DispatchOutcome outcome) {
+        return outcome.reserved() != null || !outcome.retryable() || outcome.attempts() >= maxAttempts;
+    }
+
+    // Prices come from the catalog cache at intake; the reservation snapshot is authoritative
+    private void confirm(Order order, BulkStockResponse reserved) {
+        Map<Long, StockResponse> snapshots = reserved.getItems().stream()
+                .collect(Collectors.toMap(StockResponse::getProductId, Function.identity()));
+
+        for (OrderItem item : order.getOrderItems()) {
+            StockResponse snapshot = snapshots.get(item.getProductId());
+            item.setProductName(snapshot.getProductName());
+            item.setUnitPrice(snapshot.getPrice());
+            item.setTotalPrice(snapshot.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        order.updateTotalAmount();
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        log.info("Order {} confirmed", order.getOrderNumber());
+    }
+
+    private Duration backoff(int attempts) {
+        return lease.multipliedBy(1L << Math.min(attempts - 1, 4)).dividedBy(4);
+    }
+
+    private BulkReduceStockRequest toReduceStockRequest(Order order) {
+        return BulkReduceStockRequest.builder()
+                .items(order.getOrderItems().stream()
+                        .map(item -> ReduceStockRequest.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .collect(Collectors.toList()))
+                .reference(order.getOrderNumber())
+                .build();
+    }
+
+    public record ClaimedOrder(Long outboxId, Long orderId, String orderNumber, int attempts,
+                               BulkReduceStockRequest request) {
+    }
+
+    public record DispatchOutcome(Long outboxId, Long orderId, int attempts, BulkStockResponse reserved,
+                                  String error, boolean retryable) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.dto.ReduceStockRequest;
+import com.microservices.order.dto.ReleaseStockRequest;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderSaga;
+import com.microservices.order.exception.OrderCreationException;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.repository.OrderSagaRepository;
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Tracks each order's stock reservation so that stock reserved for an order that was never
+// saved is handed back. The order number doubles as the reservation reference in inventory,
+// which makes release idempotent and safe to repeat from the recovery sweeper.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSagaCoordinator {
+
+    private final OrderSagaRepository orderSagaRepository;
+    private final OrderRepository orderRepository;
+    private final InventoryClient inventoryClient;
+
+    public void begin(String orderNumber, List<ReduceStockRequest> lines) {
+        orderSagaRepository.save(OrderSaga.builder()
+                .orderNumber(orderNumber)
+                .lines(lines.stream()
+                        .map(line -> new OrderSaga.SagaLine(line.getProductId(), line.getQuantity()))
+                        .collect(Collectors.toList()))
+                .status(OrderSaga.SagaStatus.STARTED)
+                .build());
+    }
+
+    // For a request re-run under its Idempotency-Key, which may find the saga of an earlier run.
+    // Restarting it is safe: inventory replays a reservation that is still held and refuses one that
+    // was released.
+    public void restart(String orderNumber, List<ReduceStockRequest> lines) {
+        OrderSaga saga = orderSagaRepository.findByOrderNumber(orderNumber).orElse(null);
+        if (saga == null) {
+            begin(orderNumber, lines);
+            return;
+        }
+        saga.setLines(lines.stream()
+                .map(line -> new OrderSaga.SagaLine(line.getProductId(), line.getQuantity()))
+                .collect(Collectors.toList()));
+        saga.setStatus(OrderSaga.SagaStatus.STARTED);
+        orderSagaRepository.save(saga);
+    }
+
+    // The order insert and the saga transition commit together, so a saved order always has a completed saga.
+    // Only a STARTED saga completes: a request that stalled past order.saga.in-doubt-after may find its
+    // reservation released by recovery, and then its order is rolled back for the caller to compensate.
+    @Transactional
+    public Order complete(Order order) {
+        Order savedOrder = orderRepository.save(order);
+        if (orderSagaRepository.transition(order.getOrderNumber(), OrderSaga.SagaStatus.STARTED,
+                OrderSaga.SagaStatus.COMPLETED, LocalDateTime.now()) == 0
+                && orderSagaRepository.findByOrderNumber(order.getOrderNumber()).isPresent()) {
+            throw new OrderCreationException("Stock reservation for order " + order.getOrderNumber()
+                    + " was released before the order was saved");
+        }
+        return savedOrder;
+    }
+
+    public void abort(String orderNumber) {
+        orderSagaRepository.findByOrderNumber(orderNumber).ifPresent(saga -> {
+            saga.setStatus(OrderSaga.SagaStatus.ABORTED);
+            orderSagaRepository.save(saga);
+        });
+    }
+
+    // Starts a saga that only needs compensation, for reservations made outside begin()
+    public void compensate(String orderNumber, List<ReduceStockRequest> lines, String reason) {
+        if (orderSagaRepository.findByOrderNumber(orderNumber).isEmpty()) {
+            begin(orderNumber, lines);
+        }
+        compensate(orderNumber, reason);
+    }
+
+    public void compensate(String orderNumber, String reason) {
+        orderSagaRepository.findByOrderNumber(orderNumber).ifPresent(saga -> compensate(saga, reason));
+    }
+
+    void compensate(OrderSaga saga, String reason) {
+        log.warn("Compensating stock reservation for order {}: {}", saga.getOrderNumber(), reason);
+        saga.setAttempts(saga.getAttempts() + 1);
+        try {
+            inventoryClient.releaseStock(ReleaseStockRequest.builder()
+                    .reference(saga.getOrderNumber())
+                    .items(saga.getLines().stream()
+                            .map(line -> ReduceStockRequest.builder()
+                                    .productId(line.getProductId())
+                                    .quantity(line.getQuantity())
+                                    .build())
+                            .collect(Collectors.toList()))
+                    .build());
+            saga.setStatus(OrderSaga.SagaStatus.COMPENSATED);
+            log.info("Stock reservation for order {} released", saga.getOrderNumber());
+        } catch (FeignException e) {
+            saga.setStatus(OrderSaga.SagaStatus.COMPENSATING);
+            saga.setLastError(e.getMessage());
+            log.error("Failed to release stock for order {}, recovery will retry: {}", saga.getOrderNumber(), e.getMessage());
+        }
+        orderSagaRepository.save(saga);
+    }
+}
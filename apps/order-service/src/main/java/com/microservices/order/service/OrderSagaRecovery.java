@@ -0,0 +1,78 @@
+package com.microservices.order.service;
+
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderSaga;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.repository.OrderSagaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Resolves sagas left in doubt by a crash or a failed compensation: sagas whose order was
+// confirmed are completed, all others have their reservation released.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSagaRecovery {
+
+    private final OrderSagaRepository orderSagaRepository;
+    private final OrderRepository orderRepository;
+    private final OrderSagaCoordinator orderSagaCoordinator;
+
+    @Value("${order.saga.in-doubt-after:2m}")
+    private Duration inDoubtAfter;
+
+    @Value("${order.saga.recovery-batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${order.saga.recovery-interval-ms:60000}")
+    public void recover() {
+        List<OrderSaga> sagas = orderSagaRepository.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(
+                EnumSet.of(OrderSaga.SagaStatus.STARTED, OrderSaga.SagaStatus.COMPENSATING),
+                LocalDateTime.now().minus(inDoubtAfter), PageRequest.of(0, batchSize));
+        if (sagas.isEmpty()) {
+            return;
+        }
+
+        Map<String, Order> orders = orderRepository.findByOrderNumberIn(
+                        sagas.stream().map(OrderSaga::getOrderNumber).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Order::getOrderNumber, Function.identity()));
+
+        int completed = 0;
+        int released = 0;
+        for (OrderSaga saga : sagas) {
+            Optional<Order.OrderStatus> orderStatus = Optional.ofNullable(orders.get(saga.getOrderNumber()))
+                    .map(Order::getStatus);
+            if (orderStatus.filter(status -> status == Order.OrderStatus.PENDING).isPresent()) {
+                continue;
+            }
+            // Each saga is claimed from the status it was read with; one a request completed meanwhile is left alone
+            if (orderStatus.filter(status -> status == Order.OrderStatus.CONFIRMED).isPresent()) {
+                if (orderSagaRepository.transition(saga.getOrderNumber(), saga.getStatus(),
+                        OrderSaga.SagaStatus.COMPLETED, LocalDateTime.now()) > 0) {
+                    completed++;
+                }
+            } else if (saga.getStatus() == OrderSaga.SagaStatus.COMPENSATING
+                    || orderSagaRepository.transition(saga.getOrderNumber(), OrderSaga.SagaStatus.STARTED,
+                    OrderSaga.SagaStatus.COMPENSATING, LocalDateTime.now()) > 0) {
+                saga.setStatus(OrderSaga.SagaStatus.COMPENSATING);
+                orderSagaCoordinator.compensate(saga, "in doubt after " + inDoubtAfter);
+                released++;
+            }
+        }
+        log.info("Saga recovery processed {} sagas: {} completed, {} released", sagas.size(), completed, released);
+    }
+}
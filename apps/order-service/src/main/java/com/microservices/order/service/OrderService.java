@@ -1,22 +1,36 @@
 package com.microservices.order.service;
 
+import com.microservices.common.config.RequestIdFilter;
+import com.microservices.common.config.SampledLogFilter;
 import com.microservices.order.client.InventoryClient;
+import com.microservices.order.client.InventoryErrors;
+import com.microservices.order.client.ProductCatalogCache;
 import com.microservices.order.dto.*;
 import com.microservices.order.entity.Order;
 import com.microservices.order.entity.OrderItem;
+import com.microservices.order.exception.IdempotencyKeyException;
 import com.microservices.order.exception.InsufficientStockException;
 import com.microservices.order.exception.OrderCreationException;
 import com.microservices.order.exception.ProductNotFoundException;
+import com.microservices.order.number.OrderNumberGenerator;
 import com.microservices.order.repository.OrderRepository;
 import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,83 +40,288 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final InventoryClient inventoryClient;
+    private final ProductCatalogCache productCatalogCache;
+    private final OrderOutboxService orderOutboxService;
+    private final OrderSagaCoordinator orderSagaCoordinator;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final MeterRegistry meterRegistry;
 
-    @Transactional
-    public OrderResponse createOrder(OrderRequest orderRequest) {
-        log.info("Creating order for product ID: {} with quantity: {}",
+    // keyedOrderNumber is the number claimed with the Idempotency-Key of a request, and null without one
+    public OrderResponse createOrder(OrderRequest orderRequest, String keyedOrderNumber) {
+        String orderNumber = orderNumber(keyedOrderNumber);
+        MDC.put(RequestIdFilter.ORDER_NUMBER, orderNumber);
+        Optional<Order> placed = placedOrder(keyedOrderNumber, orderNumber);
+        if (placed.isPresent()) {
+            return mapToOrderResponse(placed.get(), "Order placed successfully!");
+        }
+        log.debug("Creating order for product ID: {} with quantity: {}",
                 orderRequest.getProductId(), orderRequest.getQuantity());
 
+        ReduceStockRequest reduceStockRequest = ReduceStockRequest.builder()
+                .productId(orderRequest.getProductId())
+                .quantity(orderRequest.getQuantity())
+                .reference(orderNumber)
+                .build();
+        step("saga", "single").record(() -> beginSaga(keyedOrderNumber, orderNumber, List.of(reduceStockRequest)));
+
+        // Step 1: Reserve stock; inventory validates availability under its lock and
+        // returns the product snapshot, so no separate product lookup is needed
+        StockResponse stockResponse;
         try {
-            // Step 1: Fetch product details from Inventory Service
-            ProductResponse product = inventoryClient.getProductById(orderRequest.getProductId());
-            log.info("Product fetched: {} with stock: {}", product.getName(), product.getStockQuantity());
-
-            // Step 2: Validate stock availability
-            if (!product.isInStock() || product.getStockQuantity() < orderRequest.getQuantity()) {
-                log.warn("Insufficient stock for product: {}. Available: {}, Requested: {}",
-                        product.getName(), product.getStockQuantity(), orderRequest.getQuantity());
-                throw new InsufficientStockException(
-                        "Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + orderRequest.getQuantity());
-            }
+            stockResponse = step("reserve", "single").record(() -> inventoryClient.reduceStock(reduceStockRequest));
+        } catch (FeignException e) {
+            throw reservationFailed(orderNumber, e, "Product not found with ID: " + orderRequest.getProductId());
+        }
+        log.debug("Stock reduced successfully for product: {}. Remaining stock: {}",
+                stockResponse.getProductName(), stockResponse.getRemainingStock());
+        productCatalogCache.evictIfOutdated(stockResponse);
 
-            // Step 3: Reduce stock in Inventory Service
-            ReduceStockRequest reduceStockRequest = ReduceStockRequest.builder()
-                    .productId(orderRequest.getProductId())
-                    .quantity(orderRequest.getQuantity())
-                    .build();
+        // Step 2: Create order
+        Order savedOrder = saveOrCompensate(createOrderEntity(orderNumber, orderRequest, stockResponse), keyedOrderNumber, "single");
+        log.info(SampledLogFilter.SAMPLED, "Order created successfully with order number: {}", savedOrder.getOrderNumber());
 
-            StockResponse stockResponse = inventoryClient.reduceStock(reduceStockRequest);
-            log.info("Stock reduced successfully. Remaining stock: {}", stockResponse.getRemainingStock());
+        return mapToOrderResponse(savedOrder, "Order placed successfully!");
+    }
 
-            // Step 4: Create order
-            Order order = createOrderEntity(orderRequest, product);
-            Order savedOrder = orderRepository.save(order);
-            log.info("Order created successfully with order number: {}", savedOrder.getOrderNumber());
+    public OrderResponse createCartOrder(CartOrderRequest cartOrderRequest, String keyedOrderNumber) {
+        String orderNumber = orderNumber(keyedOrderNumber);
+        MDC.put(RequestIdFilter.ORDER_NUMBER, orderNumber);
+        Optional<Order> placed = placedOrder(keyedOrderNumber, orderNumber);
+        if (placed.isPresent()) {
+            return mapToOrderResponse(placed.get(), "Order placed successfully!");
+        }
+        log.debug("Creating order with {} items", cartOrderRequest.getItems().size());
 
-            return mapToOrderResponse(savedOrder, "Order placed successfully!");
+        BulkReduceStockRequest reduceStockRequest = BulkReduceStockRequest.builder()
+                .items(cartOrderRequest.getItems().stream()
+                        .map(item -> ReduceStockRequest.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .collect(Collectors.toList()))
+                .reference(orderNumber)
+                .build();
+        step("saga", "cart").record(() -> beginSaga(keyedOrderNumber, orderNumber, reduceStockRequest.getItems()));
 
-        } catch (FeignException.NotFound e) {
-            log.error("Product not found with ID: {}", orderRequest.getProductId());
-            throw new ProductNotFoundException("Product not found with ID: " + orderRequest.getProductId());
-        } catch (FeignException.BadRequest e) {
-            log.error("Bad request while communicating with Inventory Service: {}", e.getMessage());
-            throw new InsufficientStockException("Unable to process order due to stock issues");
+        // Step 1: Reserve stock for every line in one inventory call
+        BulkStockResponse stockResponse;
+        try {
+            stockResponse = step("reserve", "cart").record(() -> inventoryClient.reduceStockBulk(reduceStockRequest));
         } catch (FeignException e) {
-            log.error("Error communicating with Inventory Service: {}", e.getMessage());
+            throw reservationFailed(orderNumber, e, "One or more products in the order were not found");
+        }
+        log.debug("Stock reduced successfully for {} products", stockResponse.getItems().size());
+        stockResponse.getItems().forEach(productCatalogCache::evictIfOutdated);
+
+        // Step 2: Create order from the reserved lines
+        Order savedOrder = saveOrCompensate(createOrderEntity(orderNumber, cartOrderRequest, stockResponse), keyedOrderNumber, "cart");
+        log.info(SampledLogFilter.SAMPLED, "Order created successfully with order number: {}", savedOrder.getOrderNumber());
+
+        return mapToOrderResponse(savedOrder, "Order placed successfully!");
+    }
+
+    // A request carrying an Idempotency-Key always gets the order number claimed with the key, so a
+    // re-run finds the order, saga and stock reservation of an earlier run instead of placing a second order
+    private String orderNumber(String keyedOrderNumber) {
+        return keyedOrderNumber == null ? orderNumberGenerator.next() : keyedOrderNumber;
+    }
+
+    private Optional<Order> placedOrder(String keyedOrderNumber, String orderNumber) {
+        if (keyedOrderNumber == null) {
+            return Optional.empty();
+        }
+        return orderRepository.findAllWithItemsByOrderNumberIn(List.of(orderNumber)).stream().findFirst();
+    }
+
+    private void beginSaga(String keyedOrderNumber, String orderNumber, List<ReduceStockRequest> lines) {
+        if (keyedOrderNumber == null) {
+            orderSagaCoordinator.begin(orderNumber, lines);
+        } else {
+            orderSagaCoordinator.restart(orderNumber, lines);
+        }
+    }
+
+    // One timer per order creation step, so a slow order can be traced to the saga write, the
+    // inventory reservation or the order insert
+    private Timer step(String step, String flow) {
+        return Timer.builder("order.create.step")
+                .tag("step", step)
+                .tag("flow", flow)
+                .register(meterRegistry);
+    }
+
+    private RuntimeException reservationFailed(String orderNumber, FeignException e, String notFoundMessage) {
+        if (e instanceof FeignException.NotFound) {
+            log.error("Product not found for order {}: {}", orderNumber, e.getMessage());
+            orderSagaCoordinator.abort(orderNumber);
+            return new ProductNotFoundException(notFoundMessage);
+        }
+        if (e instanceof FeignException.BadRequest) {
+            log.error("Bad request while communicating with Inventory Service: {}", e.getMessage());
+            orderSagaCoordinator.abort(orderNumber);
+            return new InsufficientStockException("Unable to process order due to stock issues");
+        }
+        // Only a re-run idempotent request can meet its own reference in inventory. Either an earlier
+        // run was compensated, or it is still reserving and owns the stock, so nothing is released.
+        if (InventoryErrors.isReservationReleased(e)) {
+            log.error("Stock for order {} was released after an earlier attempt", orderNumber);
+            return new IdempotencyKeyException("An earlier attempt with this Idempotency-Key was cancelled, retry with a new key");
+        }
+        if (e instanceof FeignException.Conflict) {
+            log.error("Stock reservation for order {} conflicted with an earlier attempt: {}", orderNumber, e.getMessage());
+            return new OrderCreationException("Failed to create order. Please try again later.");
+        }
+        // Timeouts and server errors leave it unknown whether stock was taken, so hand it back
+        log.error("Error communicating with Inventory Service: {}", e.getMessage());
+        orderSagaCoordinator.compensate(orderNumber, e.getMessage());
+        return new OrderCreationException("Failed to create order. Please try again later.");
+    }
+
+    private Order saveOrCompensate(Order order, String keyedOrderNumber, String flow) {
+        try {
+            return step("save", flow).record(() -> orderSagaCoordinator.complete(order));
+        } catch (RuntimeException e) {
+            // A concurrent run of the same idempotent request saved the order and keeps the reservation
+            Optional<Order> placed = placedOrder(keyedOrderNumber, order.getOrderNumber());
+            if (placed.isPresent()) {
+                return placed.get();
+            }
+            log.error("Failed to save order {}: {}", order.getOrderNumber(), e.getMessage());
+            orderSagaCoordinator.compensate(order.getOrderNumber(), e.getMessage());
             throw new OrderCreationException("Failed to create order. Please try again later.");
         }
     }
 
+    // Accepts an order without touching inventory synchronously: items are priced from the
+    // catalog cache and the order is stored as PENDING with an outbox event for the dispatcher
+    public OrderResponse submitOrder(List<OrderItemRequest> items, String keyedOrderNumber) {
+        String orderNumber = orderNumber(keyedOrderNumber);
+        MDC.put(RequestIdFilter.ORDER_NUMBER, orderNumber);
+        Optional<Order> placed = placedOrder(keyedOrderNumber, orderNumber);
+        if (placed.isPresent()) {
+            return mapToOrderResponse(placed.get(), "Order accepted and is being processed");
+        }
+        log.debug("Accepting order with {} items for asynchronous processing", items.size());
+
+        Order order = createPendingOrder(orderNumber, items, "async");
+        Order savedOrder = step("save", "async").record(() -> orderOutboxService.enqueue(order));
+        return mapToOrderResponse(savedOrder, "Order accepted and is being processed");
+    }
+
+    // The batch counterpart of submitOrder: every order is priced the same way and all of them are
+    // stored in one transaction. Under an Idempotency-Key each order's number is the request's
+    // number with its position appended.
+    public List<OrderResponse> submitOrders(List<CartOrderRequest> cartOrderRequests, String keyedOrderNumber) {
+        log.debug("Accepting {} orders for asynchronous processing", cartOrderRequests.size());
+
+        List<String> orderNumbers = new ArrayList<>(cartOrderRequests.size());
+        for (int i = 0; i < cartOrderRequests.size(); i++) {
+            orderNumbers.add(keyedOrderNumber == null ? orderNumberGenerator.next() : keyedOrderNumber + "-" + i);
+        }
+        Map<String, Order> placed = keyedOrderNumber == null
+                ? Map.of()
+                : orderRepository.findAllWithItemsByOrderNumberIn(orderNumbers).stream()
+                        .collect(Collectors.toMap(Order::getOrderNumber, Function.identity()));
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < cartOrderRequests.size(); i++) {
+            if (!placed.containsKey(orderNumbers.get(i))) {
+                orders.add(createPendingOrder(orderNumbers.get(i), cartOrderRequests.get(i).getItems(), "bulk"));
+            }
+        }
+        Map<String, Order> saved = new HashMap<>(placed);
+        if (!orders.isEmpty()) {
+            step("save", "bulk").record(() -> orderOutboxService.enqueueAll(orders))
+                    .forEach(order -> saved.put(order.getOrderNumber(), order));
+        }
+        return orderNumbers.stream()
+                .map(orderNumber -> mapToOrderResponse(saved.get(orderNumber), "Order accepted and is being processed"))
+                .collect(Collectors.toList());
+    }
+
+    private Order createPendingOrder(String orderNumber, List<OrderItemRequest> items, String flow) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .status(Order.OrderStatus.PENDING)
+                .build();
+
+        for (OrderItemRequest item : items) {
+            ProductResponse product = step("fetch", flow).record(() -> getCatalogProduct(item.getProductId()));
+            BigDecimal totalPrice = product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+
+            order.addOrderItem(OrderItem.builder()
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .quantity(item.getQuantity())
+                    .unitPrice(product.getPrice())
+                    .totalPrice(totalPrice)
+                    .build());
+        }
+        order.updateTotalAmount();
+        return order;
+    }
+
+    // Not read-only, so it reads the primary: clients poll it right after an order is accepted, before
+    // a read replica necessarily has the order
+    @Transactional
+    public OrderStatusResponse getOrderStatus(Long id) {
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new OrderCreationException("Order not found with ID: " + id));
+        return OrderStatusResponse.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .status(order.getStatus().name())
+                .message(order.getFailureReason())
+                .updatedAt(order.getUpdatedAt())
+                .build();
+    }
+
     @Transactional(readOnly = true)
-    public List<OrderResponse> getAllOrders() {
-        log.info("Fetching all orders");
-        return orderRepository.findAll().stream()
+    public List<OrderResponse> getOrders(Long afterId, int limit) {
+        log.debug("Fetching {} orders after ID: {}", limit, afterId);
+        List<Long> ids = orderRepository.findIdsAfter(afterId, PageRequest.of(0, limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return orderRepository.findAllWithItemsByIdIn(ids).stream()
                 .map(order -> mapToOrderResponse(order, null))
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long id) {
-        log.info("Fetching order with ID: {}", id);
+        log.debug("Fetching order with ID: {}", id);
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new OrderCreationException("Order not found with ID: " + id));
         return mapToOrderResponse(order, null);
     }
 
-    private Order createOrderEntity(OrderRequest orderRequest, ProductResponse product) {
-        BigDecimal unitPrice = product.getPrice();
+    private ProductResponse getCatalogProduct(Long productId) {
+        try {
+            return productCatalogCache.getProduct(productId);
+        } catch (FeignException.NotFound e) {
+            log.error("Product not found with ID: {}", productId);
+            throw new ProductNotFoundException("Product not found with ID: " + productId);
+        } catch (FeignException e) {
+            log.error("Error communicating with Inventory Service: {}", e.getMessage());
+            throw new OrderCreationException("Failed to create order. Please try again later.");
+        }
+    }
+
+    private Order createOrderEntity(String orderNumber, OrderRequest orderRequest, StockResponse reserved) {
+        BigDecimal unitPrice = reserved.getPrice();
         BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(orderRequest.getQuantity()));
 
         OrderItem orderItem = OrderItem.builder()
-                .productId(product.getId())
-                .productName(product.getName())
+                .productId(reserved.getProductId())
+                .productName(reserved.getProductName())
                 .quantity(orderRequest.getQuantity())
                 .unitPrice(unitPrice)
                 .totalPrice(totalPrice)
                 .build();
 
         Order order = Order.builder()
-                .orderNumber(generateOrderNumber())
+                .orderNumber(orderNumber)
                 .totalAmount(totalPrice)
                 .status(Order.OrderStatus.CONFIRMED)
                 .build();
@@ -111,11 +330,34 @@ public class OrderService {
         return order;
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    // This and mapToOrderResponse are package-private for the JMH suites in the benchmarks module
+    Order createOrderEntity(String orderNumber, CartOrderRequest cartOrderRequest, BulkStockResponse stockResponse) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        cartOrderRequest.getItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .status(Order.OrderStatus.CONFIRMED)
+                .build();
+
+        for (StockResponse reserved : stockResponse.getItems()) {
+            int quantity = quantities.get(reserved.getProductId());
+            BigDecimal totalPrice = reserved.getPrice().multiply(BigDecimal.valueOf(quantity));
+
+            order.addOrderItem(OrderItem.builder()
+                    .productId(reserved.getProductId())
+                    .productName(reserved.getProductName())
+                    .quantity(quantity)
+                    .unitPrice(reserved.getPrice())
+                    .totalPrice(totalPrice)
+                    .build());
+        }
+
+        order.updateTotalAmount();
+        return order;
     }
 
-    private OrderResponse mapToOrderResponse(Order order, String message) {
+    OrderResponse mapToOrderResponse(Order order, String message) {
         List<OrderItemResponse> items = order.getOrderItems().stream()
                 .map(item -> OrderItemResponse.builder()
                         .productId(item.getProductId())
@@ -0,0 +1,21 @@
+-- The schema of the first release, as spring.jpa.hibernate.ddl-auto=update created it from the
+-- Order and OrderItem entities. A database created that way is baselined at this version, so only
+-- the migrations after it run there.
+CREATE TABLE orders (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_number varchar(255)   NOT NULL CONSTRAINT orders_order_number_key UNIQUE,
+    total_amount numeric(10, 2) NOT NULL,
+    status       varchar(255)   NOT NULL CHECK (status IN ('PENDING', 'CONFIRMED', 'FAILED', 'CANCELLED')),
+    created_at   timestamp(6),
+    updated_at   timestamp(6)
+);
+
+CREATE TABLE order_items (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id     bigint         NOT NULL CONSTRAINT order_items_order_id_fkey REFERENCES orders,
+    product_id   bigint         NOT NULL,
+    product_name varchar(255)   NOT NULL,
+    quantity     integer        NOT NULL,
+    unit_price   numeric(10, 2) NOT NULL,
+    total_price  numeric(10, 2) NOT NULL
+);
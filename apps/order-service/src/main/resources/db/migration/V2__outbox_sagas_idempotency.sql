@@ -0,0 +1,43 @@
+-- The failure reason and the tables the outbox, the order sagas and Idempotency-Key support added
+-- after the first release. A database that ddl-auto=update kept up to date since then already has
+-- some of them.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS failure_reason varchar(1000);
+
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id     bigint       NOT NULL,
+    attempts     integer      NOT NULL,
+    available_at timestamp(6) NOT NULL,
+    last_error   varchar(1000),
+    created_at   timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS order_sagas (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_number varchar(255) NOT NULL CONSTRAINT order_sagas_order_number_key UNIQUE,
+    status       varchar(255) NOT NULL
+        CHECK (status IN ('STARTED', 'COMPLETED', 'ABORTED', 'COMPENSATING', 'COMPENSATED')),
+    attempts     integer      NOT NULL,
+    last_error   varchar(1000),
+    created_at   timestamp(6),
+    updated_at   timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS order_saga_lines (
+    saga_id    bigint  NOT NULL CONSTRAINT order_saga_lines_saga_id_fkey REFERENCES order_sagas,
+    product_id bigint  NOT NULL,
+    quantity   integer NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key   varchar(64) PRIMARY KEY,
+    request_hash      varchar(32)  NOT NULL,
+    order_number      varchar(255) NOT NULL,
+    response_status   integer,
+    response_body     text,
+    response_location varchar(255),
+    locked_at         timestamp(6) NOT NULL,
+    expires_at        timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
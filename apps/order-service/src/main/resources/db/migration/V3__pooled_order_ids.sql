@@ -0,0 +1,17 @@
+-- Orders, items and outbox events take their ids from sequences in blocks of 50, which
+-- order-service and order-service-reactive fill in memory. An identity column keeps its sequence
+-- and only changes the step. A database that ddl-auto already moved to plain sequences is left as
+-- it is.
+DO $$
+DECLARE
+    identity_table text;
+BEGIN
+    FOR identity_table IN
+        SELECT table_name FROM information_schema.columns
+        WHERE table_schema = current_schema() AND column_name = 'id' AND is_identity = 'YES'
+          AND table_name IN ('orders', 'order_items', 'order_outbox')
+    LOOP
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET INCREMENT BY 50', identity_table);
+    END LOOP;
+END
+$$;
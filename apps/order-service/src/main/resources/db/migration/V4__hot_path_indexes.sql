@@ -0,0 +1,15 @@
+-- Order pages and lookups fetch the items of each order by order id
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+
+-- Reporting and support queries look orders up by when they were placed
+CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders (created_at);
+
+-- The outbox dispatcher claims due events in id order
+CREATE INDEX IF NOT EXISTS idx_order_outbox_available_at ON order_outbox (available_at, id);
+
+-- The saga recovery sweep looks for in-doubt sagas by status and age, and loads their lines by saga
+CREATE INDEX IF NOT EXISTS idx_order_sagas_status_updated_at ON order_sagas (status, updated_at);
+CREATE INDEX IF NOT EXISTS idx_order_saga_lines_saga_id ON order_saga_lines (saga_id);
+
+ALTER TABLE order_items ADD CONSTRAINT order_items_quantity_check CHECK (quantity > 0);
+ALTER TABLE orders ADD CONSTRAINT orders_total_amount_check CHECK (total_amount >= 0);
@@ -0,0 +1,61 @@
+package com.microservices.common.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Replaces the auto-configured DataSource with one that sends read-only transactions to a read
+// replica. The primary pool takes the usual spring.datasource settings. The replica pool takes
+// shop.datasource.replica.*, and uses the primary's credentials unless it has its own. Both pools
+// report their hikaricp metrics tagged with pool=primary or pool=replica.
+@Configuration
+@ConditionalOnClass(HikariDataSource.class)
+@ConditionalOnProperty(name = "shop.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReplicaPool replicaPool(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+                                   @Value("${shop.datasource.replica.url:}") String url,
+                                   @Value("${shop.datasource.replica.username:}") String username,
+                                   @Value("${shop.datasource.replica.password:}") String password,
+                                   @Value("${shop.datasource.replica.max-lag:1s}") Duration maxLag) {
+        if (url.isBlank()) {
+            throw new IllegalStateException("shop.datasource.replica.url must be set when the read replica is enabled");
+        }
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(url);
+        replica.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+        replica.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+        // A replica that stops answering should move reads to the primary within a second, not after 30
+        replica.setConnectionTimeout(1000);
+        return new ReplicaPool(pool(replica, "replica", "shop.datasource.replica.hikari", environment, meterRegistry),
+                maxLag, meterRegistry);
+    }
+
+    @Bean
+    public ReadReplicaDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                            ReplicaPool replicaPool, MeterRegistry meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        return new ReadReplicaDataSource(pool(primary, "primary", "spring.datasource.hikari", environment, meterRegistry),
+                replicaPool, meterRegistry);
+    }
+
+    private static HikariDataSource pool(HikariDataSource dataSource, String name, String prefix, Environment environment,
+                                         MeterRegistry meterRegistry) {
+        dataSource.setPoolName(name);
+        Binder.get(environment).bind(prefix, Bindable.ofInstance(dataSource));
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
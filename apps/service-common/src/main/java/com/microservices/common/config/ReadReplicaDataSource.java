@@ -0,0 +1,80 @@
+package com.microservices.common.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// The service's DataSource when a read replica is configured. Read-only transactions get replica
+// connections while the replica is usable; everything else, including a read-only transaction while
+// the replica lags or is down, runs on the primary. The physical connection is only taken at the
+// first statement: JPA asks for it before Spring marks the transaction read-only.
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final HikariDataSource primary;
+
+    public ReadReplicaDataSource(HikariDataSource primary, ReplicaPool replica, MeterRegistry meterRegistry) {
+        super(new Router(primary, replica, meterRegistry));
+        this.primary = primary;
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+    }
+
+    private static final class Router extends AbstractDataSource {
+
+        private final HikariDataSource primary;
+        private final ReplicaPool replica;
+        private final Counter primaryReadWrite;
+        private final Counter primaryReadOnly;
+        private final Counter replicaReadOnly;
+
+        private Router(HikariDataSource primary, ReplicaPool replica, MeterRegistry meterRegistry) {
+            this.primary = primary;
+            this.replica = replica;
+            this.primaryReadWrite = connections(meterRegistry, "primary", "read-write");
+            this.primaryReadOnly = connections(meterRegistry, "primary", "read-only");
+            this.replicaReadOnly = connections(meterRegistry, "replica", "read-only");
+        }
+
+        private static Counter connections(MeterRegistry meterRegistry, String pool, String access) {
+            return Counter.builder("shop.datasource.connections")
+                    .description("Connections handed out, by pool and by the access of their transaction")
+                    .tag("pool", pool)
+                    .tag("access", access)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                primaryReadWrite.increment();
+                return primary.getConnection();
+            }
+            if (replica.isUsable()) {
+                try {
+                    Connection connection = replica.getConnection();
+                    replicaReadOnly.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.markUnusable(e);
+                }
+            }
+            primaryReadOnly.increment();
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new UnsupportedOperationException("Both pools connect with their configured credentials");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.microservices.common.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+// The read replica's connection pool and whether reads may use it. Reads leave the replica while its
+// replay is more than maxLag behind the primary or it cannot be reached, and come back once a check
+// finds it caught up. Until the first check they stay on the primary.
+@Slf4j
+public class ReplicaPool implements AutoCloseable {
+
+    // Zero while the replica has replayed all it received, so a primary without writes is not mistaken for lag
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE extract(epoch FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final HikariDataSource dataSource;
+    private final Duration maxLag;
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean usable;
+
+    public ReplicaPool(HikariDataSource dataSource, Duration maxLag, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.maxLag = maxLag;
+        Gauge.builder("shop.datasource.replica.lag", this, pool -> pool.lagSeconds)
+                .description("Replay lag of the read replica, NaN while it cannot be reached")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("shop.datasource.replica.usable", this, pool -> pool.usable ? 1 : 0)
+                .description("1 while read-only transactions are routed to the read replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    // For a read that could not get a replica connection; the next check that reaches it brings it back
+    public void markUnusable(SQLException cause) {
+        if (usable) {
+            log.warn("Read replica unavailable, reading from the primary: {}", cause.getMessage());
+        }
+        usable = false;
+    }
+
+    @Scheduled(fixedDelayString = "${shop.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        double lag;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(1);
+            try (ResultSet rows = statement.executeQuery(LAG_QUERY)) {
+                rows.next();
+                lag = rows.getDouble(1);
+            }
+        } catch (SQLException e) {
+            lagSeconds = Double.NaN;
+            markUnusable(e);
+            return;
+        }
+
+        lagSeconds = lag;
+        boolean caughtUp = lag * 1000 <= maxLag.toMillis();
+        if (caughtUp && !usable) {
+            log.info("Read replica {}s behind, routing reads to it", lag);
+        } else if (!caughtUp && usable) {
+            log.warn("Read replica {}s behind, over the {} allowed; reading from the primary", lag, maxLag);
+        }
+        usable = caughtUp;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
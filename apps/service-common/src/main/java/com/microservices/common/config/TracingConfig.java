@@ -0,0 +1,75 @@
+package com.microservices.common.config;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class TracingConfig {
+
+    // Offline alternative to an OTLP collector. Boot hands every SpanExporter bean to its batch span processor.
+    @Bean
+    @ConditionalOnProperty(name = "shop.tracing.file.enabled", havingValue = "true")
+    public SpanExporter fileSpanExporter(@Value("${shop.tracing.file.path}") Path path) throws IOException {
+        return new FileSpanExporter(path);
+    }
+
+    // One child span per repository call inside a traced request, e.g. OrderRepository.save. The span is the
+    // outermost advice so it also covers the commit of repository-level transactions. Reactive repositories
+    // return before the query runs, so they get none.
+    @Bean
+    public static BeanPostProcessor repositoryTracing(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> {
+                                if (!repositoryInformation.isReactiveRepository()) {
+                                    proxyFactory.addAdvice(0, new RepositorySpanInterceptor(
+                                            tracer, repositoryInformation.getRepositoryInterface().getSimpleName()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private record RepositorySpanInterceptor(ObjectProvider<Tracer> tracerProvider, String repository)
+            implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Tracer tracer = tracerProvider.getIfAvailable();
+            // Only calls made within a trace get a span, so startup work does not start traces of its own
+            if (tracer == null || tracer.currentSpan() == null) {
+                return invocation.proceed();
+            }
+            Span span = tracer.nextSpan()
+                    .name(repository + "." + invocation.getMethod().getName())
+                    .tag("db.system", "postgresql")
+                    .start();
+            try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+                return invocation.proceed();
+            } catch (Throwable ex) {
+                span.error(ex);
+                throw ex;
+            } finally {
+                span.end();
+            }
+        }
+    }
+}